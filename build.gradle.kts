@@ -15,6 +15,11 @@ java {
     withJavadocJar()
 }
 
+// Classes that require a newer JDK than the baseline are compiled separately and packaged as a multi-release jar.
+val java15 by sourceSets.creating {
+    java.srcDir("src/main/java15")
+}
+
 dependencies {
     api("org.clojure:clojure:[1.6.0,)")
     api("com.github.rschmitt:collider:1.0.0")
@@ -28,6 +33,20 @@ dependencies {
     testImplementation("collection-check:collection-check:0.1.6")
 }
 
+tasks.jar {
+    into("META-INF/versions/15") {
+        from(java15.output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
+// Run the tests against the multi-release jar, so that the versioned classes are exercised as well.
+tasks.withType<Test> {
+    classpath = files(tasks.jar) + classpath - sourceSets.main.get().output
+}
+
 tasks.test {
     useJUnitPlatform {
         excludeTags("benchmark")
@@ -110,4 +129,8 @@ tasks.withType(JavaCompile::class) {
     options.release.set(8)
 }
 
+tasks.named<JavaCompile>(java15.compileJavaTaskName) {
+    options.release.set(15)
+}
+
 defaultTasks("build")
@@ -0,0 +1,79 @@
+plugins {
+    `java-library`
+    `maven-publish`
+}
+
+group = "com.github.rschmitt"
+version = rootProject.version
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+    withSourcesJar()
+}
+
+dependencies {
+    implementation(rootProject)
+
+    testCompileOnly("org.junit.jupiter:junit-jupiter-api:5.+")
+    testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.+")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+repositories {
+    mavenLocal()
+    mavenCentral()
+    maven {
+        url = uri("https://clojars.org/repo")
+    }
+}
+
+tasks.withType(JavaCompile::class) {
+    options.encoding = "UTF-8"
+    options.release.set(8)
+}
+
+tasks.jar {
+    manifest {
+        attributes("Main-Class" to "com.github.rschmitt.dynamicobject.pregen.ProxyPregenerator")
+    }
+}
+
+// The tests check that proxies generated ahead of time for the test types are picked up at runtime, which is also how
+// the generator is meant to be wired into a consuming build.
+val pregeneratedTestProxies = layout.buildDirectory.dir("pregenerated/test")
+
+val pregenerateTestProxies by tasks.registering(JavaExec::class) {
+    val testClasses = sourceSets.test.get().java.classesDirectory
+    inputs.dir(testClasses)
+    outputs.dir(pregeneratedTestProxies)
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("com.github.rschmitt.dynamicobject.pregen.ProxyPregenerator")
+    args(testClasses.get().asFile.absolutePath, pregeneratedTestProxies.get().asFile.absolutePath)
+}
+
+tasks.test {
+    dependsOn(pregenerateTestProxies)
+    classpath += files(pregeneratedTestProxies)
+    useJUnitPlatform()
+}
+
+publishing {
+    publications {
+        create<MavenPublication>("maven") {
+            from(components["java"])
+            pom {
+                name.set("dynamic-object-pregen")
+                description.set("Build-time generation of DynamicObject proxy classes.")
+                url.set("https://github.com/rschmitt/dynamic-object")
+                licenses {
+                    license {
+                        name.set("CC0")
+                        url.set("http://creativecommons.org/publicdomain/zero/1.0/")
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.rschmitt.dynamicobject.pregen;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+import com.github.rschmitt.dynamicobject.internal.Instances;
+import com.github.rschmitt.dynamicobject.internal.indyproxy.DynamicProxy;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Generates the proxy classes for DynamicObject types ahead of time, so that they do not have to be generated with ASM
+ * and defined at runtime. At runtime, a proxy class found on the classpath next to its DynamicObject type is used in
+ * preference to generating a new one.
+ * <p>
+ * The generator is meant to run as part of a build, after the DynamicObject types have been compiled:
+ * <pre>
+ * java -cp &lt;runtime classpath, including the compiled classes&gt; \
+ *     com.github.rschmitt.dynamicobject.pregen.ProxyPregenerator &lt;classes dir&gt; [&lt;output dir&gt;]
+ * </pre>
+ * Every interface in {@code <classes dir>} that extends DynamicObject gets a proxy class, which is written to
+ * {@code <output dir>} (by default, the classes dir itself). The generator also writes GraalVM native-image
+ * reflection metadata for the types and their proxies to {@value #NativeImageConfig} under the output dir.
+ * <p>
+ * Proxies must be regenerated whenever the DynamicObject types change, and they must be generated against the same
+ * versions of DynamicObject and Clojure that are used at runtime.
+ */
+public final class ProxyPregenerator {
+    static final String NativeImageConfig = "META-INF/native-image/dynamic-object/proxies/reflect-config.json";
+
+    private ProxyPregenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ProxyPregenerator <classes dir> [<output dir>]");
+            System.exit(1);
+        }
+        Path classesDir = Paths.get(args[0]);
+        Path outputDir = args.length == 2 ? Paths.get(args[1]) : classesDir;
+
+        List<Class<?>> types = findDynamicObjectTypes(classesDir, Thread.currentThread().getContextClassLoader());
+        generate(types, outputDir);
+    }
+
+    /**
+     * Finds every interface in {@code classesDir} that extends DynamicObject. The classes are loaded, without being
+     * initialized, through {@code loader}, which must be able to see the contents of {@code classesDir}.
+     */
+    public static List<Class<?>> findDynamicObjectTypes(Path classesDir, ClassLoader loader) throws IOException {
+        List<Class<?>> ret = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(classesDir)) {
+            for (Path file : files.filter(ProxyPregenerator::isClassFile).collect(toList())) {
+                String name = binaryName(classesDir.relativize(file));
+                try {
+                    Class<?> klass = Class.forName(name, false, loader);
+                    if (klass.isInterface() && klass != DynamicObject.class && DynamicObject.class.isAssignableFrom(klass))
+                        ret.add(klass);
+                } catch (ClassNotFoundException | LinkageError ignore) {
+                    // Classes whose dependencies are not on the classpath cannot be DynamicObject types we can proxy.
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Writes a proxy class for each of the given DynamicObject types, plus native-image reflection metadata, to
+     * {@code outputDir}.
+     */
+    public static void generate(Collection<Class<?>> types, Path outputDir) throws Exception {
+        List<String> proxyNames = new ArrayList<>();
+        for (Class<?> type : types) {
+            DynamicProxy.Builder builder = Instances.proxyBuilder(type);
+            String proxyName = builder.proxyClassName();
+            Path classFile = outputDir.resolve(proxyName.replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, builder.generate());
+            proxyNames.add(proxyName);
+        }
+        writeNativeImageConfig(types, proxyNames, outputDir.resolve(NativeImageConfig));
+    }
+
+    private static void writeNativeImageConfig(Collection<Class<?>> types, List<String> proxyNames, Path file) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (Class<?> type : types)
+            entries.add(String.format("{\"name\": \"%s\", \"allPublicMethods\": true, \"allDeclaredMethods\": true}", type.getName()));
+        for (String proxyName : proxyNames)
+            entries.add(String.format("{\"name\": \"%s\", \"allPublicConstructors\": true, \"allDeclaredMethods\": true, \"allDeclaredFields\": true}", proxyName));
+
+        Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("[\n");
+            for (int i = 0; i < entries.size(); i++) {
+                w.write("  ");
+                w.write(entries.get(i));
+                w.write(i == entries.size() - 1 ? "\n" : ",\n");
+            }
+            w.write("]\n");
+        }
+    }
+
+    private static boolean isClassFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".class") && !name.equals("module-info.class") && !name.equals("package-info.class");
+    }
+
+    private static String binaryName(Path relativePath) {
+        String path = relativePath.toString().replace(relativePath.getFileSystem().getSeparator(), ".");
+        return path.substring(0, path.length() - ".class".length());
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.rschmitt.dynamicobject.pregen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+
+public class ProxyPregeneratorTest {
+    @Test
+    public void pregeneratedProxyIsUsed() {
+        Pregenerated instance = DynamicObject.newInstance(Pregenerated.class).str("str");
+
+        assertSame(Pregenerated.class.getClassLoader(), instance.getClass().getClassLoader());
+        assertEquals(Pregenerated.class.getName() + "Impl", instance.getClass().getName());
+        assertEquals("str", instance.str());
+        assertEquals("{:str \"str\"}", DynamicObject.serialize(instance));
+    }
+
+    @Test
+    public void nativeImageConfigIsGenerated() {
+        assertNotNull(getClass().getClassLoader().getResource(ProxyPregenerator.NativeImageConfig));
+    }
+
+    public interface Pregenerated extends DynamicObject<Pregenerated> {
+        String str();
+
+        Pregenerated str(String str);
+    }
+}
@@ -1 +1,4 @@
 rootProject.name = "dynamic-object"
+
+include("dynamic-object-pregen")
+project(":dynamic-object-pregen").projectDir = file("pregen")
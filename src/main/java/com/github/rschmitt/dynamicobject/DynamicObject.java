@@ -1,20 +1,26 @@
 package com.github.rschmitt.dynamicobject;
 
-import com.github.rschmitt.dynamicobject.internal.EdnSerialization;
-import com.github.rschmitt.dynamicobject.internal.FressianSerialization;
 import com.github.rschmitt.dynamicobject.internal.Instances;
+import com.github.rschmitt.dynamicobject.internal.Preloading;
 import com.github.rschmitt.dynamicobject.internal.Serialization;
 import org.fressian.FressianReader;
 import org.fressian.FressianWriter;
 import org.fressian.handlers.ReadHandler;
 import org.fressian.handlers.WriteHandler;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackReader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 @SuppressWarnings("rawtypes")
@@ -91,11 +97,63 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * {@link DynamicObject#registerType} will be invoked as needed.
      */
     static String serialize(Object o) {
-        return EdnSerialization.serialize(o);
+        return DynamicObjectSerializer.DEFAULT.serialize(o);
     }
 
     static void serialize(Object o, Writer w) {
-        EdnSerialization.serialize(o, w);
+        DynamicObjectSerializer.DEFAULT.serialize(o, w);
+    }
+
+    /**
+     * Serialize the given object to UTF-8 encoded Edn, which is written to {@code os}. The stream is flushed, but not
+     * closed. This is equivalent to, but cheaper than, serializing to an {@code OutputStreamWriter}.
+     */
+    static void serialize(Object o, OutputStream os) {
+        DynamicObjectSerializer.DEFAULT.serialize(o, os);
+    }
+
+    /**
+     * Serialize the given object to UTF-8 encoded Edn. This is equivalent to, but cheaper than,
+     * {@code serialize(o).getBytes(StandardCharsets.UTF_8)}.
+     */
+    static byte[] serializeToBytes(Object o) {
+        return DynamicObjectSerializer.DEFAULT.serializeToBytes(o);
+    }
+
+    /**
+     * Serialize the given object to UTF-8 encoded Edn, which is written to {@code buffer} starting at its current
+     * position. On return, the position of the buffer is just past the end of the encoded object.
+     *
+     * @throws java.nio.BufferOverflowException if the encoded object does not fit in the remaining space in the buffer;
+     *                                          the position of the buffer is not changed, but the contents of the
+     *                                          remaining space are unspecified
+     */
+    static void serialize(Object o, ByteBuffer buffer) {
+        DynamicObjectSerializer.DEFAULT.serialize(o, buffer);
+    }
+
+    /**
+     * Serialize each of the given objects to {@code w}, followed by a newline. Unlike {@link #serialize(Object, Writer)},
+     * {@code w} is only flushed once, after all of the objects have been written. The output can be read back with
+     * {@link #deserializeStream(PushbackReader, Class)}.
+     */
+    static void serializeAll(Iterable<?> objects, Writer w) {
+        DynamicObjectSerializer.DEFAULT.serializeAll(objects, w);
+    }
+
+    /**
+     * Like {@link #serializeAll(Iterable, Writer)}, but for a stream, which is consumed in encounter order.
+     */
+    static void serializeAll(Stream<?> objects, Writer w) {
+        DynamicObjectSerializer.DEFAULT.serializeAll(objects, w);
+    }
+
+    /**
+     * Create an {@link EdnStreamWriter} that writes to {@code w}, which allows the delimiter and the flush policy to
+     * be configured.
+     */
+    static EdnStreamWriter createEdnStreamWriter(Writer w) {
+        return DynamicObjectSerializer.DEFAULT.createEdnStreamWriter(w);
     }
 
     /**
@@ -105,28 +163,123 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * @param type The type of class to deserialize. Must be an interface that extends DynamicObject.
      */
     static <T> T deserialize(String edn, Class<T> type) {
-        return EdnSerialization.deserialize(edn, type);
+        return DynamicObjectSerializer.DEFAULT.deserialize(edn, type);
+    }
+
+    /**
+     * Deserializes a DynamicObject or registered type from UTF-8 encoded Edn.
+     *
+     * @see DynamicObject#deserialize(String, Class)
+     */
+    static <T> T deserialize(byte[] utf8Edn, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserialize(utf8Edn, type);
+    }
+
+    /**
+     * Deserializes a DynamicObject or registered type from the remaining UTF-8 encoded Edn in {@code utf8Edn}. The
+     * position of the buffer is not changed.
+     *
+     * @see DynamicObject#deserialize(String, Class)
+     */
+    static <T> T deserialize(ByteBuffer utf8Edn, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserialize(utf8Edn, type);
     }
 
     /**
      * Lazily deserialize a stream of top-level Edn elements as the given type.
      */
     static <T> Stream<T> deserializeStream(PushbackReader streamReader, Class<T> type) {
-        return EdnSerialization.deserializeStream(streamReader, type);
+        return DynamicObjectSerializer.DEFAULT.deserializeStream(streamReader, type);
+    }
+
+    /**
+     * Lazily deserialize the top-level elements in the remaining UTF-8 encoded Edn in {@code utf8Edn} as the given
+     * type. The position of the buffer is not changed.
+     * <p>
+     * Unlike {@link #deserializeStream(PushbackReader, Class)}, the stream that is returned can be processed in
+     * parallel: the input is divided into chunks on the boundaries between top-level elements, which are parsed
+     * independently. The stream is ordered, so e.g. {@code collect(toList())} returns the elements in the order they
+     * appear in the input even if the stream is parallel; call {@link Stream#unordered()} if the order does not
+     * matter. Finding the boundaries takes a quick sequential pass over the input when the stream is created.
+     */
+    static <T> Stream<T> deserializeStream(ByteBuffer utf8Edn, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserializeStream(utf8Edn, type);
+    }
+
+    /**
+     * Lazily deserialize the top-level elements in {@code file}, which must contain UTF-8 encoded Edn, as the given
+     * type. The file is memory-mapped rather than read, and the stream can be processed in parallel, like the one
+     * returned by {@link #deserializeStream(ByteBuffer, Class)}. Files larger than 2 GB are mapped in several parts.
+     * <p>
+     * The file should not be modified while the stream is in use.
+     */
+    static <T> Stream<T> deserializeFile(Path file, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserializeFile(file, type);
     }
 
     /**
      * Serialize a single object {@code o} to binary Fressian data.
      */
     static byte[] toFressianByteArray(Object o) {
-        return FressianSerialization.toFressianByteArray(o);
+        return DynamicObjectSerializer.DEFAULT.toFressianByteArray(o);
+    }
+
+    /**
+     * Serialize a single object {@code o} to binary Fressian data that refers to the entries of {@code dictionary}
+     * instead of encoding them. The data can only be read by {@link #fromFressianByteArray(byte[], FressianDictionary)}
+     * with the same dictionary.
+     */
+    static byte[] toFressianByteArray(Object o, FressianDictionary dictionary) {
+        return DynamicObjectSerializer.DEFAULT.toFressianByteArray(o, dictionary);
+    }
+
+    /**
+     * Serialize a single object {@code o} to binary Fressian data, which is written to {@code buffer} starting at its
+     * current position. On return, the position of the buffer is just past the end of the encoded object.
+     * <p>
+     * Like {@link #toFressianByteArray(Object)}, this reuses a per-thread Fressian writer, so encoding many small
+     * messages does not allocate a new writer and output buffer for each one.
+     *
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the encoded object does not fit in the remaining space in the buffer;
+     *                                          the position of the buffer is not changed, but the contents of the
+     *                                          remaining space are unspecified
+     */
+    static int toFressian(Object o, ByteBuffer buffer) {
+        return DynamicObjectSerializer.DEFAULT.toFressian(o, buffer);
     }
 
     /**
      * Deserialize and return the Fressian-encoded object in {@code bytes}.
      */
     static <T> T fromFressianByteArray(byte[] bytes) {
-        return FressianSerialization.fromFressianByteArray(bytes);
+        return DynamicObjectSerializer.DEFAULT.fromFressianByteArray(bytes);
+    }
+
+    /**
+     * Deserialize and return the Fressian-encoded object in {@code bytes}, which was written by {@link
+     * #toFressianByteArray(Object, FressianDictionary)}.
+     *
+     * @throws IllegalArgumentException if the object was written with a different version of the dictionary
+     */
+    static <T> T fromFressianByteArray(byte[] bytes, FressianDictionary dictionary) {
+        return DynamicObjectSerializer.DEFAULT.fromFressianByteArray(bytes, dictionary);
+    }
+
+    /**
+     * Deserialize and return the Fressian-encoded object in the {@code length} bytes of {@code bytes} starting at
+     * {@code offset}. The bytes are decoded in place, without being copied out of the array first.
+     */
+    static <T> T fromFressian(byte[] bytes, int offset, int length) {
+        return DynamicObjectSerializer.DEFAULT.fromFressian(bytes, offset, length);
+    }
+
+    /**
+     * Deserialize and return the Fressian-encoded object in the remaining bytes of {@code buffer}, which may be a heap
+     * or a direct buffer. The bytes are decoded in place, and the position of the buffer is not changed.
+     */
+    static <T> T fromFressian(ByteBuffer buffer) {
+        return DynamicObjectSerializer.DEFAULT.fromFressian(buffer);
     }
 
     /**
@@ -138,7 +291,7 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * FressianReader#validateFooter()}.
      */
     static FressianReader createFressianReader(InputStream is, boolean validateChecksum) {
-        return FressianSerialization.createFressianReader(is, validateChecksum);
+        return DynamicObjectSerializer.DEFAULT.createFressianReader(is, validateChecksum);
     }
 
     /**
@@ -149,7 +302,7 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * by calling {@link FressianWriter#writeFooter()}.
      */
     static FressianWriter createFressianWriter(OutputStream os) {
-        return FressianSerialization.createFressianWriter(os);
+        return DynamicObjectSerializer.DEFAULT.createFressianWriter(os);
     }
 
     /**
@@ -157,7 +310,27 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * be validated.
      */
     static <T> Stream<T> deserializeFressianStream(InputStream is, Class<T> type) {
-        return FressianSerialization.deserializeFressianStream(is, type);
+        return DynamicObjectSerializer.DEFAULT.deserializeFressianStream(is, type);
+    }
+
+    /**
+     * Lazily deserialize a stream of Fressian-encoded values from {@code channel} as the given type. The channel is
+     * read in large blocks into a direct buffer, which the values are decoded from. A Fressian footer, if encountered,
+     * will be validated. Closing the stream does not close the channel.
+     */
+    static <T> Stream<T> deserializeFressianStream(ReadableByteChannel channel, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserializeFressianStream(channel, type);
+    }
+
+    /**
+     * Lazily deserialize the Fressian-encoded values in {@code file} as the given type. The file is memory-mapped and
+     * read directly from the mapping; files larger than 2 GB are mapped in several parts. A Fressian footer, if
+     * encountered, will be validated.
+     * <p>
+     * The file should not be modified while the stream is in use.
+     */
+    static <T> Stream<T> deserializeFressianFile(Path file, Class<T> type) {
+        return DynamicObjectSerializer.DEFAULT.deserializeFressianFile(file, type);
     }
 
     /**
@@ -167,6 +340,15 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
         return Instances.wrap(map, type);
     }
 
+    /**
+     * Returns a function that uses the supplied map to back an instance of {@code type}, exactly like
+     * {@link #wrap(Map, Class)}. The function is bound to {@code type} ahead of time, so code that wraps many maps of
+     * the same type can avoid the per-call type lookup performed by {@code wrap}.
+     */
+    static <D extends DynamicObject<D>> Function<Map, D> factory(Class<D> type) {
+        return Instances.factory(type);
+    }
+
     /**
      * Create a "blank" instance of {@code type}, backed by an empty Clojure map. All fields will be null.
      */
@@ -174,12 +356,75 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
         return Instances.newInstance(type);
     }
 
+    /**
+     * Create an instance of {@code type} by applying a batch of builder method calls, e.g.
+     * {@code DynamicObject.build(Album.class, a -> a.artist("Meshuggah").album("Chaosphere"))}. The instance passed to
+     * {@code builder} is backed by a transient map: each builder call updates it in place and returns the same
+     * instance, so only a single instance is created for the whole batch. The resulting instance is equal to the one
+     * that would be produced by invoking the same builder methods on {@link #newInstance}.
+     * <p>
+     * The instance passed to {@code builder} may only be used to invoke builder methods and getters, and it must not
+     * be retained after {@code builder} returns.
+     */
+    static <D extends DynamicObject<D>> D build(Class<D> type, Consumer<D> builder) {
+        return Instances.build(type, builder);
+    }
+
+    /**
+     * Generate the implementation classes of the given DynamicObject types and link their getters, builders, and
+     * {@code validate()} method ahead of time. Ordinarily this work is done lazily, the first time each method is
+     * invoked, which can cause latency spikes shortly after startup.
+     */
+    static void preload(Class<?>... types) {
+        Preloading.preload(types);
+    }
+
+    /**
+     * Like {@link #preload(Class[])}, but preloads the types in parallel using the given pool. This method returns once
+     * all of the types have been preloaded.
+     */
+    static void preload(ForkJoinPool pool, Class<?>... types) {
+        Preloading.preload(pool, types);
+    }
+
+    /**
+     * Preload exactly the types and methods that were recorded in {@code usageFile} by {@link #recordUsage(Path)}.
+     * Types that cannot be found are ignored.
+     */
+    static void preload(Path usageFile) {
+        Preloading.preload(usageFile);
+    }
+
+    /**
+     * Start recording the DynamicObject types and methods that are used by this process to {@code usageFile}, which is
+     * overwritten. Each method is recorded the first time it is invoked; methods that were already invoked before this
+     * method was called are not recorded. The file can be passed to {@link #preload(Path)} on subsequent startups.
+     *
+     * @return a handle that stops recording when closed
+     */
+    static Closeable recordUsage(Path usageFile) {
+        return Preloading.recordUsage(usageFile);
+    }
+
+    /**
+     * Cache the implementation classes that are generated for DynamicObject types in {@code directory}, and reuse them
+     * on subsequent startups. A cached class is only reused if it was generated from the current version of its type
+     * and of this library; otherwise it is regenerated and replaced. The cache can be shared by concurrent processes.
+     * <p>
+     * The directory is laid out like a class path entry, so it can also be added to the class path of an application
+     * (for instance, in order to include the classes in a class data sharing archive), in which case the classes will
+     * be loaded from there directly. Pass {@code null} to stop caching.
+     */
+    static void useProxyCache(Path directory) {
+        Instances.useProxyCache(directory);
+    }
+
     /**
      * Register an {@link EdnTranslator} to enable instances of {@code type} to be serialized to and deserialized from
      * Edn using reader tags.
      */
     static <T> void registerType(Class<T> type, EdnTranslator<T> translator) {
-        EdnSerialization.registerType(type, translator);
+        Serialization.registerType(type, translator);
     }
 
     /**
@@ -187,7 +432,7 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * instances of {@code type} to be serialized to and deserialized from Fressian data.
      */
     static void registerType(Class type, String tag, ReadHandler readHandler, WriteHandler writeHandler) {
-        FressianSerialization.registerType(type, tag, readHandler, writeHandler);
+        Serialization.registerType(type, tag, readHandler, writeHandler);
     }
 
     /**
@@ -227,6 +472,6 @@ public interface DynamicObject<D extends DynamicObject<D>> extends Map {
      * throw an exception if unknown reader tags are encountered.
      */
     static <T> void setDefaultReader(BiFunction<String, Object, T> reader) {
-        EdnSerialization.setDefaultReader(reader);
+        Serialization.setDefaultReader(reader);
     }
 }
@@ -2,20 +2,29 @@ package com.github.rschmitt.dynamicobject;
 
 import com.github.rschmitt.dynamicobject.internal.EdnSerialization;
 import com.github.rschmitt.dynamicobject.internal.FressianSerialization;
+import com.github.rschmitt.dynamicobject.internal.Registry;
+import com.github.rschmitt.dynamicobject.internal.Serialization;
 
 import org.fressian.FressianReader;
 import org.fressian.FressianWriter;
+import org.fressian.handlers.ReadHandler;
+import org.fressian.handlers.WriteHandler;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackReader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 /**
- * A utility class for DynamicObject (de)serialization. All of the methods in this class delegate
- * directly to the static methods in {@linkplain DynamicObject}. The difference is that this class
- * is instantiable, and can therefore participate in dependency injection. This makes it
+ * A utility class for DynamicObject (de)serialization. A serializer created with the public
+ * constructor uses the types and tags registered through the static methods in
+ * {@linkplain DynamicObject}, which delegate to such a serializer. The difference is that this
+ * class is instantiable, and can therefore participate in dependency injection. This makes it
  * straightforward to ensure that types and serialization tags are registered with DynamicObject
  * before any serialization is attempted.
  * <p>
@@ -48,68 +57,270 @@ import java.util.stream.Stream;
  *     }
  * }
  * </pre></blockquote>
+ * Alternatively, a serializer can be given its own set of registrations with {@link #builder()}.
+ * These registrations are independent of the ones made through {@linkplain DynamicObject}, and of
+ * those of any other serializer, so different parts of a program can use different reader tags for
+ * the same types. A serializer that is built this way is immutable and can be shared freely
+ * between threads; everything it needs in order to read and write registered types is computed
+ * once, when it is built. Note that types registered through
+ * {@link DynamicObject#registerType(Class, EdnTranslator)} are also known to Clojure's
+ * {@code print-method}, so every serializer is able to print them.
  */
 public class DynamicObjectSerializer {
+    static final DynamicObjectSerializer DEFAULT = new DynamicObjectSerializer();
+
+    private final Registry registry;
+
+    /**
+     * Create a serializer that uses the types and tags registered through the static methods in
+     * {@linkplain DynamicObject}, including those that are registered after it is created.
+     */
+    public DynamicObjectSerializer() {
+        this(null);
+    }
+
+    private DynamicObjectSerializer(Registry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns a builder for a serializer with its own registrations, which initially has no types
+     * or tags registered and uses the built-in default reader for unknown elements.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private Registry registry() {
+        return registry != null ? registry : Serialization.registry();
+    }
     /**
      * @see DynamicObject#serialize(Object)
      */
     public String serialize(Object o) {
-        return EdnSerialization.serialize(o);
+        return EdnSerialization.serialize(o, registry());
     }
 
     /**
      * @see DynamicObject#serialize(Object, Writer)
      */
     public void serialize(Object o, Writer w) {
-        EdnSerialization.serialize(o, w);
+        EdnSerialization.serialize(o, w, registry());
+    }
+
+    /**
+     * @see DynamicObject#serialize(Object, OutputStream)
+     */
+    public void serialize(Object o, OutputStream os) {
+        EdnSerialization.serialize(o, os, registry());
+    }
+
+    /**
+     * @see DynamicObject#serializeToBytes(Object)
+     */
+    public byte[] serializeToBytes(Object o) {
+        return EdnSerialization.serializeToBytes(o, registry());
+    }
+
+    /**
+     * @see DynamicObject#serialize(Object, ByteBuffer)
+     */
+    public void serialize(Object o, ByteBuffer buffer) {
+        EdnSerialization.serialize(o, buffer, registry());
+    }
+
+    /**
+     * @see DynamicObject#serializeAll(Iterable, Writer)
+     */
+    public void serializeAll(Iterable<?> objects, Writer w) {
+        createEdnStreamWriter(w).writeAll(objects).flush();
+    }
+
+    /**
+     * @see DynamicObject#serializeAll(Stream, Writer)
+     */
+    public void serializeAll(Stream<?> objects, Writer w) {
+        createEdnStreamWriter(w).writeAll(objects).flush();
+    }
+
+    /**
+     * @see DynamicObject#createEdnStreamWriter(Writer)
+     */
+    public EdnStreamWriter createEdnStreamWriter(Writer w) {
+        return new EdnStreamWriter(w, registry());
     }
 
     /**
      * @see DynamicObject#deserialize(String, Class)
      */
     public <T> T deserialize(String edn, Class<T> type) {
-        return EdnSerialization.deserialize(edn, type);
+        return EdnSerialization.deserialize(edn, type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserialize(byte[], Class)
+     */
+    public <T> T deserialize(byte[] utf8Edn, Class<T> type) {
+        return EdnSerialization.deserialize(ByteBuffer.wrap(utf8Edn), type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserialize(ByteBuffer, Class)
+     */
+    public <T> T deserialize(ByteBuffer utf8Edn, Class<T> type) {
+        return EdnSerialization.deserialize(utf8Edn, type, registry());
     }
 
     /**
      * @see DynamicObject#deserializeStream(PushbackReader, Class)
      */
     public <T> Stream<T> deserializeStream(PushbackReader streamReader, Class<T> type) {
-        return EdnSerialization.deserializeStream(streamReader, type);
+        return EdnSerialization.deserializeStream(streamReader, type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserializeStream(ByteBuffer, Class)
+     */
+    public <T> Stream<T> deserializeStream(ByteBuffer utf8Edn, Class<T> type) {
+        return EdnSerialization.deserializeStream(utf8Edn, type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserializeFile(Path, Class)
+     */
+    public <T> Stream<T> deserializeFile(Path file, Class<T> type) {
+        return EdnSerialization.deserializeFile(file, type, registry());
     }
 
     /**
      * @see DynamicObject#toFressianByteArray(Object)
      */
     public byte[] toFressianByteArray(Object o) {
-        return FressianSerialization.toFressianByteArray(o);
+        return FressianSerialization.toFressianByteArray(o, registry());
+    }
+
+    /**
+     * @see DynamicObject#toFressianByteArray(Object, FressianDictionary)
+     */
+    public byte[] toFressianByteArray(Object o, FressianDictionary dictionary) {
+        return FressianSerialization.toFressianByteArray(o, dictionary, registry());
+    }
+
+    /**
+     * @see DynamicObject#toFressian(Object, ByteBuffer)
+     */
+    public int toFressian(Object o, ByteBuffer buffer) {
+        return FressianSerialization.toFressian(o, buffer, registry());
     }
 
     /**
      * @see DynamicObject#fromFressianByteArray(byte[])
      */
     public <T> T fromFressianByteArray(byte[] bytes) {
-        return FressianSerialization.fromFressianByteArray(bytes);
+        return FressianSerialization.fromFressianByteArray(bytes, registry());
+    }
+
+    /**
+     * @see DynamicObject#fromFressianByteArray(byte[], FressianDictionary)
+     */
+    public <T> T fromFressianByteArray(byte[] bytes, FressianDictionary dictionary) {
+        return FressianSerialization.fromFressianByteArray(bytes, dictionary, registry());
+    }
+
+    /**
+     * @see DynamicObject#fromFressian(byte[], int, int)
+     */
+    public <T> T fromFressian(byte[] bytes, int offset, int length) {
+        return FressianSerialization.fromFressian(bytes, offset, length, registry());
+    }
+
+    /**
+     * @see DynamicObject#fromFressian(ByteBuffer)
+     */
+    public <T> T fromFressian(ByteBuffer buffer) {
+        return FressianSerialization.fromFressian(buffer, registry());
     }
 
     /**
      * @see DynamicObject#createFressianReader(InputStream, boolean)
      */
     public FressianReader createFressianReader(InputStream is, boolean validateChecksum) {
-        return FressianSerialization.createFressianReader(is, validateChecksum);
+        return FressianSerialization.createFressianReader(is, validateChecksum, registry());
     }
 
     /**
      * @see DynamicObject#createFressianWriter(OutputStream)
      */
     public FressianWriter createFressianWriter(OutputStream os) {
-        return FressianSerialization.createFressianWriter(os);
+        return FressianSerialization.createFressianWriter(os, registry());
     }
 
     /**
      * @see DynamicObject#deserializeFressianStream(InputStream, Class)
      */
     public <T> Stream<T> deserializeFressianStream(InputStream is, Class<T> type) {
-        return FressianSerialization.deserializeFressianStream(is, type);
+        return FressianSerialization.deserializeFressianStream(is, type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserializeFressianStream(ReadableByteChannel, Class)
+     */
+    public <T> Stream<T> deserializeFressianStream(ReadableByteChannel channel, Class<T> type) {
+        return FressianSerialization.deserializeFressianStream(channel, type, registry());
+    }
+
+    /**
+     * @see DynamicObject#deserializeFressianFile(Path, Class)
+     */
+    public <T> Stream<T> deserializeFressianFile(Path file, Class<T> type) {
+        return FressianSerialization.deserializeFressianFile(file, type, registry());
+    }
+
+    /**
+     * A builder for a {@link DynamicObjectSerializer} with its own registrations. The registration
+     * methods behave like the corresponding static methods in {@linkplain DynamicObject}.
+     */
+    public static final class Builder {
+        private Registry registry = Registry.EMPTY;
+
+        private Builder() {
+        }
+
+        /**
+         * @see DynamicObject#registerType(Class, EdnTranslator)
+         */
+        public <T> Builder registerType(Class<T> type, EdnTranslator<T> translator) {
+            registry = registry.withType(type, translator);
+            return this;
+        }
+
+        /**
+         * @see DynamicObject#registerType(Class, String, ReadHandler, WriteHandler)
+         */
+        @SuppressWarnings("rawtypes")
+        public Builder registerType(Class type, String tag, ReadHandler readHandler, WriteHandler writeHandler) {
+            registry = registry.withType(type, tag, readHandler, writeHandler);
+            return this;
+        }
+
+        /**
+         * @see DynamicObject#registerTag(Class, String)
+         */
+        public <D extends DynamicObject<D>> Builder registerTag(Class<D> type, String tag) {
+            registry = registry.withTag(type, tag);
+            return this;
+        }
+
+        /**
+         * @see DynamicObject#setDefaultReader(BiFunction)
+         */
+        public <T> Builder setDefaultReader(BiFunction<String, Object, T> reader) {
+            registry = registry.withDefaultReader(reader);
+            return this;
+        }
+
+        public DynamicObjectSerializer build() {
+            return new DynamicObjectSerializer(registry);
+        }
     }
 }
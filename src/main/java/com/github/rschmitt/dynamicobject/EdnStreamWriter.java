@@ -0,0 +1,173 @@
+package com.github.rschmitt.dynamicobject;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.github.rschmitt.dynamicobject.internal.EdnSerialization;
+import com.github.rschmitt.dynamicobject.internal.Registry;
+
+/**
+ * Writes a sequence of objects to a {@link Writer} as Edn, separated by a delimiter. Unlike
+ * {@link DynamicObject#serialize(Object, Writer)}, which flushes the writer after every object, an
+ * {@code EdnStreamWriter} only flushes according to its flush policy, which makes it suitable for
+ * writing large numbers of records to a buffered file or socket. The output can be read back with
+ * {@link DynamicObject#deserializeStream}.
+ * <p>
+ * By default, each object is followed by a newline, and the underlying writer is only flushed when
+ * {@link #flush()} or {@link #close()} is called. For example: <blockquote><pre>
+ * try (EdnStreamWriter w = DynamicObject.createEdnStreamWriter(writer).flushEveryRecords(1000)) {
+ *     records.forEach(w::write);
+ * }
+ * </pre></blockquote>
+ * Instances are not thread-safe.
+ */
+public final class EdnStreamWriter implements Flushable, Closeable {
+    private final Writer out;
+    private final Registry registry;
+    private String delimiter = "\n";
+    private long recordsPerFlush = 0;
+    private long charsPerFlush = 0;
+    private CountingWriter counter;
+    private long unflushedRecords = 0;
+
+    EdnStreamWriter(Writer out, Registry registry) {
+        this.out = out;
+        this.registry = registry;
+    }
+
+    /**
+     * Write {@code delimiter} after each object instead of a newline.
+     */
+    public EdnStreamWriter delimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Flush the underlying writer after every {@code records} objects. Zero disables this policy.
+     */
+    public EdnStreamWriter flushEveryRecords(long records) {
+        if (records < 0)
+            throw new IllegalArgumentException("Negative record count: " + records);
+        this.recordsPerFlush = records;
+        return this;
+    }
+
+    /**
+     * Flush the underlying writer once at least {@code chars} characters have been written since the last flush. Zero
+     * disables this policy.
+     */
+    public EdnStreamWriter flushEveryChars(long chars) {
+        if (chars < 0)
+            throw new IllegalArgumentException("Negative character count: " + chars);
+        this.charsPerFlush = chars;
+        if (chars > 0 && counter == null)
+            counter = new CountingWriter(out);
+        return this;
+    }
+
+    /**
+     * Write {@code o}, followed by the delimiter.
+     */
+    public EdnStreamWriter write(Object o) {
+        Writer w = charsPerFlush > 0 ? counter : out;
+        EdnSerialization.write(o, w, registry);
+        try {
+            w.write(delimiter);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        unflushedRecords++;
+        if ((recordsPerFlush > 0 && unflushedRecords >= recordsPerFlush)
+                || (charsPerFlush > 0 && counter.count >= charsPerFlush))
+            flush();
+        return this;
+    }
+
+    /**
+     * Write each of {@code objects}, each followed by the delimiter.
+     */
+    public EdnStreamWriter writeAll(Iterable<?> objects) {
+        for (Object o : objects)
+            write(o);
+        return this;
+    }
+
+    /**
+     * Write each of {@code objects}, in encounter order, each followed by the delimiter.
+     */
+    public EdnStreamWriter writeAll(Stream<?> objects) {
+        for (Iterator<?> it = objects.iterator(); it.hasNext(); )
+            write(it.next());
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        unflushedRecords = 0;
+        if (counter != null)
+            counter.count = 0;
+    }
+
+    /**
+     * Flush and close the underlying writer.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    private static final class CountingWriter extends Writer {
+        private final Writer out;
+        private long count = 0;
+
+        CountingWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.rschmitt.dynamicobject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests that instances of the annotated DynamicObject type be backed by a compact, positional map whose layout is
+ * derived from the type's getters. Each instance stores only an array of values in field order; the keys themselves
+ * are shared by every instance of the type. This can substantially reduce the memory footprint of large collections
+ * of instances that are kept in memory, such as caches.
+ * <p>
+ * The backing map is still an ordinary persistent Clojure map, so {@link DynamicObject#getMap()}, serialization, and
+ * Clojure interop are unaffected. If a key that does not correspond to any getter is associated into an instance, the
+ * instance transparently falls back to a conventional Clojure map.
+ *
+ * @since 1.8.0
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FixedShape {
+}
@@ -0,0 +1,191 @@
+package com.github.rschmitt.dynamicobject;
+
+import com.github.rschmitt.dynamicobject.internal.FressianDictionarySupport;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A shared, precomputed set of objects that Fressian messages can refer to by index instead of encoding them. Ordinarily,
+ * every Fressian message starts with an empty cache, so a short message pays the full cost of every map key and
+ * {@link Cached} value it contains, however common they are. A message written with a dictionary starts with the
+ * dictionary's entries already cached, so each of them costs one byte (for the first 32 entries) or two or three bytes
+ * (for the rest), every time.
+ * <p>
+ * The entries are the keys of DynamicObject types registered with {@link DynamicObject#registerTag(Class, String)},
+ * values of their {@code @Cached} fields, and the field layouts of types with {@link PositionalEncoding}; other
+ * objects are never looked up in the dictionary. A dictionary is built from the types themselves and from a sample of
+ * typical messages, which contributes the keys and values that occur most often: <blockquote><pre>
+ * FressianDictionary dictionary = FressianDictionary.builder(1)
+ *         .addKeys(Event.class)
+ *         .addSample(sampleInputStream)
+ *         .build();
+ * byte[] bytes = DynamicObject.toFressianByteArray(event, dictionary);
+ * Event copy = DynamicObject.fromFressianByteArray(bytes, dictionary);
+ * </pre></blockquote>
+ * The writer and the reader have to use the same dictionary. Each message starts with the version of the dictionary it
+ * was written with, and reading it with a different version is an error, so the version should be changed whenever the
+ * entries do. A dictionary can be distributed with {@link #toByteArray()} and {@link #fromByteArray(byte[])}.
+ * <p>
+ * Instances are immutable.
+ *
+ * @since 1.8.0
+ */
+public final class FressianDictionary {
+    private final int version;
+    private final List<Object> entries;
+
+    private FressianDictionary(int version, List<?> entries) {
+        this.version = version;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Create a dictionary with exactly the given entries, in order.
+     */
+    public static FressianDictionary of(int version, List<?> entries) {
+        return new FressianDictionary(version, entries);
+    }
+
+    public static Builder builder(int version) {
+        return new Builder(version);
+    }
+
+    /**
+     * Read a dictionary that was written by {@link #toByteArray()}. Any types that the entries contain must be
+     * registered.
+     */
+    public static FressianDictionary fromByteArray(byte[] bytes) {
+        List<Object> list = DynamicObject.fromFressianByteArray(bytes);
+        return new FressianDictionary(((Number) list.get(0)).intValue(), (List<?>) list.get(1));
+    }
+
+    /**
+     * Encode this dictionary as Fressian.
+     */
+    public byte[] toByteArray() {
+        List<Object> list = new ArrayList<>();
+        list.add(version);
+        list.add(entries);
+        return DynamicObject.toFressianByteArray(list);
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * The entries, in the order of their indices.
+     */
+    public List<Object> entries() {
+        return entries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FressianDictionary))
+            return false;
+        FressianDictionary that = (FressianDictionary) o;
+        return version == that.version && entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * version + entries.hashCode();
+    }
+
+    /**
+     * Collects candidate entries and orders them by how often they occur in the sample, so that the most common
+     * entries get the cheapest indices. Entries that were added explicitly, or through {@link #addKeys(Class)}, come
+     * first and are always included; entries that were only seen in the sample are included if they occur more than
+     * once, and if there is room for them.
+     */
+    public static final class Builder {
+        private final int version;
+        private final Map<Object, Long> counts = new LinkedHashMap<>();
+        private final Set<Object> required = new HashSet<>();
+        private int maxEntries = 256;
+
+        private Builder(int version) {
+            this.version = version;
+        }
+
+        /**
+         * Add an entry.
+         */
+        public Builder add(Object entry) {
+            if (entry != null) {
+                counts.putIfAbsent(entry, 0L);
+                required.add(entry);
+            }
+            return this;
+        }
+
+        /**
+         * Add the keys of {@code type}, and its field layout if it has {@link PositionalEncoding}.
+         */
+        public Builder addKeys(Class<? extends DynamicObject> type) {
+            for (Object entry : FressianDictionarySupport.entriesFor(type))
+                add(entry);
+            return this;
+        }
+
+        /**
+         * Count the keys and {@code @Cached} values in each of {@code values}, including in DynamicObjects nested in
+         * collections.
+         */
+        public Builder addSample(Iterable<?> values) {
+            for (Object value : values)
+                FressianDictionarySupport.count(value, counts);
+            return this;
+        }
+
+        /**
+         * Read a sample Fressian stream with the registered types, and count the keys and {@code @Cached} values in
+         * it. The stream is read to the end, but not closed.
+         */
+        public Builder addSample(InputStream fressian) {
+            try (Stream<Object> values = DynamicObject.deserializeFressianStream(fressian, Object.class)) {
+                for (Iterator<Object> it = values.iterator(); it.hasNext(); )
+                    FressianDictionarySupport.count(it.next(), counts);
+            }
+            return this;
+        }
+
+        /**
+         * Limit the number of entries, which is 256 by default. Entries that were only seen in the sample are dropped
+         * first, the least common ones before the others.
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 0)
+                throw new IllegalArgumentException("Negative entry count: " + maxEntries);
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if more entries were added explicitly than {@link #maxEntries(int)} allows
+         */
+        public FressianDictionary build() {
+            if (required.size() > maxEntries)
+                throw new IllegalStateException(required.size() + " entries were added, but the limit is " + maxEntries);
+            List<Object> entries = new ArrayList<>();
+            for (Map.Entry<Object, Long> entry : counts.entrySet())
+                if (entry.getValue() > 1 || required.contains(entry.getKey()))
+                    entries.add(entry.getKey());
+            entries.sort((a, b) -> {
+                int byRequired = Boolean.compare(required.contains(b), required.contains(a));
+                return byRequired != 0 ? byRequired : Long.compare(counts.get(b), counts.get(a));
+            });
+            return new FressianDictionary(version, entries.subList(0, Math.min(maxEntries, entries.size())));
+        }
+    }
+}
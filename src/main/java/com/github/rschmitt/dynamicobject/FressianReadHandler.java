@@ -1,21 +1,48 @@
 package com.github.rschmitt.dynamicobject;
 
+import clojure.lang.ITransientMap;
+import clojure.lang.PersistentArrayMap;
 import org.fressian.Reader;
 import org.fressian.handlers.ReadHandler;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class FressianReadHandler<D extends DynamicObject<D>> implements ReadHandler {
-    private final Class<D> type;
+    private final Function<Map, D> factory;
 
     public FressianReadHandler(Class<D> type) {
-        this.type = type;
+        this.factory = DynamicObject.factory(type);
     }
 
     @Override
     @SuppressWarnings("deprecation")
     public Object read(Reader r, Object tag, int componentCount) throws IOException {
-        return DynamicObject.wrap((Map) r.readObject(), type).afterDeserialization();
+        Map map = componentCount == 1 ? (Map) r.readObject() : readPositional(r);
+        return factory.apply(map).afterDeserialization();
+    }
+
+    /*
+     * Reads the components written by FressianWriteHandler for a type with @PositionalEncoding.
+     */
+    private static Map readPositional(Reader r) throws IOException {
+        List layout = (List) r.readObject();
+        long present = r.readInt();
+        List values = (List) r.readObject();
+        int count = Long.bitCount(present);
+        Map extras = values.size() > count ? (Map) values.get(count) : null;
+
+        ITransientMap map = PersistentArrayMap.EMPTY.asTransient();
+        int next = 0;
+        for (int i = 0; present != 0; i++, present >>>= 1)
+            if ((present & 1) != 0)
+                map = map.assoc(layout.get(i), values.get(next++));
+        if (extras != null)
+            for (Map.Entry entry : (Iterable<Map.Entry>) extras.entrySet())
+                map = map.assoc(entry.getKey(), entry.getValue());
+        return (Map) map.persistent();
     }
 }
@@ -8,7 +8,11 @@ import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -20,15 +24,39 @@ public class FressianWriteHandler<D extends DynamicObject<D>> implements WriteHa
     private final Class<D> type;
     private final String tag;
     private final Set<Object> cachedKeys;
+    private final List<Object> layout;
+    private final Map<Object, Integer> positions;
 
     public FressianWriteHandler(Class<D> type, String tag, Set<Object> cachedKeys) {
+        this(type, tag, cachedKeys, null);
+    }
+
+    /**
+     * Create a handler that writes instances positionally, as described in {@link PositionalEncoding}, using the given
+     * keys as the field layout. If {@code layout} is null, instances are written as maps.
+     */
+    public FressianWriteHandler(Class<D> type, String tag, Set<Object> cachedKeys, List<Object> layout) {
         this.type = type;
         this.tag = tag;
         this.cachedKeys = cachedKeys;
+        if (layout == null) {
+            this.layout = null;
+            this.positions = null;
+        } else {
+            this.layout = Collections.unmodifiableList(new ArrayList<>(layout.subList(0, Math.min(64, layout.size()))));
+            this.positions = new HashMap<>();
+            for (Object key : this.layout)
+                positions.put(key, positions.size());
+        }
     }
 
     @Override
     public void write(Writer w, Object instance) throws IOException {
+        if (layout != null) {
+            writePositional(w, ((DynamicObject) instance).getMap());
+            return;
+        }
+
         // We manually serialize the backing map so that we can apply caching transformations to specific subcomponents.
         // To avoid needless copying we do this via an adapter rather than copying to a temporary list.
         w.writeTag(tag, 1);
@@ -38,6 +66,41 @@ public class FressianWriteHandler<D extends DynamicObject<D>> implements WriteHa
         w.writeList(new TransformedMap(map, this::transformKey, this::transformValue));
     }
 
+    /*
+     * The positional encoding has three components: the layout, which is cached so that it is only written in full
+     * once per stream; a bitmap of the layout positions that are present in the map; and a list of the values at those
+     * positions, in order, followed by a map of the entries whose keys are not part of the layout, if there are any. A
+     * position that is present may still hold a null value, so absent and null fields are distinguished.
+     */
+    @SuppressWarnings("unchecked")
+    private void writePositional(Writer w, Map map) throws IOException {
+        Object[] values = new Object[layout.size()];
+        long present = 0;
+        Map extras = null;
+        for (Map.Entry entry : (Set<Map.Entry>) map.entrySet()) {
+            Integer position = positions.get(entry.getKey());
+            if (position == null) {
+                if (extras == null)
+                    extras = new HashMap();
+                extras.put(transformKey(entry.getKey()), transformValue(entry.getKey(), entry.getValue()));
+            } else {
+                present |= 1L << position;
+                values[position] = transformValue(entry.getKey(), entry.getValue());
+            }
+        }
+
+        w.writeTag(tag, 3);
+        w.writeObject(layout, true);
+        w.writeInt(present);
+        List<Object> components = new ArrayList<>(Long.bitCount(present) + 1);
+        for (int i = 0; i < values.length; i++)
+            if ((present & (1L << i)) != 0)
+                components.add(values[i]);
+        if (extras != null)
+            components.add(extras);
+        w.writeList(components);
+    }
+
     /*
      * Although Fressian will automatically cache the string components of each Keyword, by default we still spend a
      * minimum of three bytes per keyword - one for the keyword directive itself, one for the namespace (usually null),
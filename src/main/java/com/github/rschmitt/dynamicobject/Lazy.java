@@ -0,0 +1,23 @@
+package com.github.rschmitt.dynamicobject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests that the collection returned by the associated getter be converted lazily. Ordinarily, a getter such as
+ * {@code List<Integer>} or {@code Set<MyDynamicObject>} eagerly copies the entire underlying collection, converting
+ * every element to the expected Java type. With this annotation, the getter instead returns an immutable view over the
+ * underlying collection that converts each element the first time it is accessed. Operations like {@code size},
+ * {@code get(i)}, and {@code contains} therefore never materialize the whole converted collection.
+ * <p>
+ * This annotation applies to getters returning {@code List}, {@code Set}, {@code Collection}, or {@code Map}, including
+ * collections nested within those types (e.g. {@code Map<String, List<Short>>}). It has no effect on other getters.
+ *
+ * @since 1.8.0
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+}
@@ -0,0 +1,28 @@
+package com.github.rschmitt.dynamicobject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests that binary serializers encode instances of the annotated DynamicObject type positionally, rather than as a
+ * list of keys and values. Currently, only the Fressian serializer makes use of this annotation, and only for types
+ * registered with {@link DynamicObject#registerTag(Class, String)}.
+ * <p>
+ * The field layout, which is derived from the type's getters, is written once per Fressian stream. After that, each
+ * instance is written as a bitmap of the fields that are present, followed by their values in field order; keys that
+ * do not correspond to any getter are written in a trailing map. This saves at least one byte per field, and more for
+ * types with many fields. Only the first 64 fields of the layout are encoded positionally; any others are written in
+ * the trailing map.
+ * <p>
+ * Readers understand both encodings regardless of whether the type is annotated, so the annotation can be added to a
+ * type without breaking the ability to read data written without it. However, data written with the annotation can
+ * only be read by versions of DynamicObject that support it.
+ *
+ * @since 1.8.0
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PositionalEncoding {
+}
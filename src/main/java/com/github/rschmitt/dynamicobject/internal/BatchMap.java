@@ -0,0 +1,67 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import clojure.lang.IMeta;
+import clojure.lang.IPersistentMap;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The backing map of an instance that is under construction by DynamicObject#build. Builder methods invoked on such an
+ * instance update this map in place (see DynamicObjectInstance#assoc and #assocMeta) rather than allocating a new
+ * persistent map and a new instance for every call. Metadata is accumulated separately, since transients cannot carry
+ * metadata.
+ */
+@SuppressWarnings("rawtypes")
+final class BatchMap extends AbstractMap implements IMeta {
+    private static final Object NotFound = new Object();
+
+    private Object transientMap;
+    private IPersistentMap meta;
+
+    BatchMap(Map map) {
+        this.transientMap = ClojureStuff.Transient.invoke(map);
+        this.meta = (IPersistentMap) ClojureStuff.Meta.invoke(map);
+    }
+
+    void assoc(Object key, Object value) {
+        transientMap = ClojureStuff.AssocBang.invoke(transientMap, key, value);
+    }
+
+    void assocMeta(Object key, Object value) {
+        meta = (IPersistentMap) ClojureStuff.Assoc.invoke(meta, key, value);
+    }
+
+    Map toPersistent() {
+        Object map = ClojureStuff.Persistent.invoke(transientMap);
+        if (meta != null)
+            map = ClojureStuff.WithMeta.invoke(map, meta);
+        return (Map) map;
+    }
+
+    @Override
+    public IPersistentMap meta() {
+        return meta;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return ClojureStuff.Get.invoke(transientMap, key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return ClojureStuff.Get.invoke(transientMap, key, NotFound) != NotFound;
+    }
+
+    @Override
+    public int size() {
+        return ((Number) ClojureStuff.Count.invoke(transientMap)).intValue();
+    }
+
+    @Override
+    public Set<Entry> entrySet() {
+        throw new UnsupportedOperationException("An instance under construction can only be used to invoke builders and getters");
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * An InputStream over the remaining bytes of a sequence of ByteBuffers, read in order, such as the consecutive
+ * mappings of a file that is too large to be mapped at once. The buffers are read through duplicates, so their
+ * positions are not changed.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer[] buffers;
+    private int current = 0;
+
+    ByteBufferInputStream(ByteBuffer... buffers) {
+        this.buffers = new ByteBuffer[buffers.length];
+        for (int i = 0; i < buffers.length; i++)
+            this.buffers[i] = buffers[i].duplicate();
+    }
+
+    /*
+     * Returns the buffer that is being read, or null at the end of the stream.
+     */
+    private ByteBuffer buffer() {
+        while (current < buffers.length) {
+            ByteBuffer buffer = buffers[current];
+            if (buffer.hasRemaining())
+                return buffer;
+            buffers[current++] = null;
+        }
+        return null;
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer buffer = buffer();
+        if (buffer == null)
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        ByteBuffer buffer = buffer();
+        if (buffer == null)
+            return -1;
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = 0;
+        ByteBuffer buffer;
+        while (skipped < n && (buffer = buffer()) != null) {
+            int step = (int) Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        ByteBuffer buffer = buffer();
+        return buffer == null ? 0 : buffer.remaining();
+    }
+}
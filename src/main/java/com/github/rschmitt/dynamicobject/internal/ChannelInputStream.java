@@ -0,0 +1,59 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+ * An InputStream over a ReadableByteChannel that reads the channel into a direct buffer, which the bytes are then read
+ * from in place. Unlike Channels.newInputStream, single-byte reads, which is mostly what FressianReader does, do not go
+ * to the channel. The channel is not closed when the stream is.
+ */
+final class ChannelInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean eof = false;
+
+    ChannelInputStream(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /*
+     * Returns false if the channel has no more bytes.
+     */
+    private boolean fill() throws IOException {
+        while (!buffer.hasRemaining() && !eof) {
+            buffer.clear();
+            eof = channel.read(buffer) < 0;
+            buffer.flip();
+        }
+        return buffer.hasRemaining();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill())
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.rschmitt.dynamicobject.internal;
 
 import clojure.lang.IFn;
+import clojure.lang.MultiFn;
+import clojure.lang.Namespace;
+import clojure.lang.Symbol;
 
 import java.util.Map;
 
@@ -12,7 +15,6 @@ public class ClojureStuff {
     public static final Map EmptyMap = (Map) read("{}");
     public static final Object EmptySet = read("#{}");
     public static final Object EmptyVector = read("[]");
-    public static final Object Readers = read(":readers");
     public static final Object Default = read(":default");
 
     public static final IFn Assoc = var("clojure.core/assoc");
@@ -20,45 +22,87 @@ public class ClojureStuff {
     public static final IFn Bigint = var("clojure.core/bigint");
     public static final IFn Biginteger = var("clojure.core/biginteger");
     public static final IFn ConjBang = var("clojure.core/conj!");
+    public static final IFn Count = var("clojure.core/count");
     public static final IFn Deref = var("clojure.core/deref");
     public static final IFn Dissoc = var("clojure.core/dissoc");
-    public static final IFn Eval = var("clojure.core/eval");
     public static final IFn Get = var("clojure.core/get");
     public static final IFn Memoize = var("clojure.core/memoize");
     public static final IFn MergeWith = var("clojure.core/merge-with");
     public static final IFn Meta = var("clojure.core/meta");
     public static final IFn Nth = var("clojure.core/nth");
     public static final IFn Persistent = var("clojure.core/persistent!");
-    public static final IFn PreferMethod = var("clojure.core/prefer-method");
     public static final IFn PrOn = var("clojure.core/pr-on");
-    public static final IFn Read = var("clojure.edn/read");
     public static final IFn ReadString = var("clojure.edn/read-string");
-    public static final IFn RemoveMethod = var("clojure.core/remove-method");
     public static final IFn Transient = var("clojure.core/transient");
     public static final IFn VaryMeta = var("clojure.core/vary-meta");
+    public static final IFn WithMeta = var("clojure.core/with-meta");
 
-    public static final Object PrintMethod = Deref.invoke(var("clojure.core/print-method"));
+    public static final MultiFn PrintMethod = (MultiFn) Deref.invoke(var("clojure.core/print-method"));
     public static final IFn CachedRead = (IFn) Memoize.invoke(var("clojure.edn/read-string"));
-    public static final IFn Pprint;
-    public static final IFn SimpleDispatch;
-    public static final IFn Diff;
 
-    public static final Map clojureReadHandlers;
-    public static final Map clojureWriteHandlers;
+    /*
+     * clojure.pprint, clojure.data, and clojure.data.fressian take a while to load, and most programs only need some of
+     * them, if any. Each namespace is required the first time one of the accessors below is called, by initializing the
+     * holder class for that namespace.
+     */
+    public static IFn pprint() {
+        return PprintNamespace.Pprint;
+    }
 
-    static {
-        IFn require = var("clojure.core/require");
-        require.invoke(read("clojure.pprint"));
-        require.invoke(read("clojure.data"));
-        require.invoke(read("clojure.data.fressian"));
+    public static MultiFn simpleDispatch() {
+        return PprintNamespace.SimpleDispatch;
+    }
 
-        Pprint = var("clojure.pprint/pprint");
-        Diff = var("clojure.data/diff");
+    public static IFn diff() {
+        return DataNamespace.Diff;
+    }
+
+    public static Map clojureReadHandlers() {
+        return FressianNamespace.ReadHandlers;
+    }
+
+    public static Map clojureWriteHandlers() {
+        return FressianNamespace.WriteHandlers;
+    }
+
+    static boolean isLoaded(String namespace) {
+        return Namespace.find(Symbol.intern(namespace)) != null;
+    }
+
+    private static void require(String namespace) {
+        var("clojure.core/require").invoke(read(namespace));
+    }
+
+    private static final class PprintNamespace {
+        static final IFn Pprint;
+        static final MultiFn SimpleDispatch;
+
+        static {
+            require("clojure.pprint");
+            Pprint = var("clojure.pprint/pprint");
+            SimpleDispatch = (MultiFn) Deref.invoke(var("clojure.pprint/simple-dispatch"));
+            EdnSerialization.installPrettyPrintMethod(SimpleDispatch);
+        }
+    }
+
+    private static final class DataNamespace {
+        static final IFn Diff;
+
+        static {
+            require("clojure.data");
+            Diff = var("clojure.data/diff");
+        }
+    }
 
-        SimpleDispatch = (IFn) Deref.invoke(var("clojure.pprint/simple-dispatch"));
+    private static final class FressianNamespace {
+        static final Map ReadHandlers;
+        static final Map WriteHandlers;
 
-        clojureReadHandlers = (Map) Deref.invoke(var("clojure.data.fressian/clojure-read-handlers"));
-        clojureWriteHandlers = (Map) Deref.invoke(var("clojure.data.fressian/clojure-write-handlers"));
+        static {
+            require("clojure.data.fressian");
+            ReadHandlers = (Map) Deref.invoke(var("clojure.data.fressian/clojure-read-handlers"));
+            WriteHandlers = (Map) Deref.invoke(var("clojure.data.fressian/clojure-write-handlers"));
+        }
     }
 
     public static Object cachedRead(String edn) {
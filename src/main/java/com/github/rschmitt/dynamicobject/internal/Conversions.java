@@ -1,10 +1,12 @@
 package com.github.rschmitt.dynamicobject.internal;
 
+import clojure.lang.IPersistentCollection;
 import com.github.rschmitt.collider.ClojureMap;
 import com.github.rschmitt.collider.Collider;
 import com.github.rschmitt.collider.TransientMap;
 import com.github.rschmitt.dynamicobject.DynamicObject;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.time.Instant;
@@ -15,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 @SuppressWarnings("rawtypes")
 class Conversions {
@@ -141,4 +144,146 @@ class Conversions {
 
         return transientMap.toPersistent();
     }
+
+    /*
+     * Compile a converter that performs the same conversion as clojureToJava, but that inspects the generic return
+     * type only once, up front, rather than on every invocation. Additionally, collection types whose elements do not
+     * require any conversion (e.g. List<String> or Map<String, String>) are recognized as identity conversions: for
+     * these, a persistent Clojure collection is returned as-is, rather than being copied element by element.
+     *
+     * If the getter is annotated with @Lazy, List, Set, Collection, and Map types are converted into lazy views (see
+     * LazyViews) rather than being copied eagerly.
+     */
+    static Function<Object, Object> converterFor(Method getter) {
+        return converterFor(getter.getGenericReturnType(), Reflection.isLazy(getter));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> converterFor(Type genericReturnType, boolean lazy) {
+        Class<?> rawReturnType;
+        try {
+            rawReturnType = Reflection.getRawType(genericReturnType);
+        } catch (UnsupportedOperationException ex) {
+            // Unsupported types (e.g. wildcards) only fail when a value is actually converted
+            return obj -> clojureToJava(obj, genericReturnType);
+        }
+
+        if (rawReturnType.equals(Optional.class)) {
+            Function<Object, Object> nested = converterFor(Reflection.getTypeArgument(genericReturnType, 0), lazy);
+            return obj -> Optional.ofNullable(nested.apply(obj));
+        }
+
+        if (genericReturnType instanceof Class) {
+            Class<?> returnType = (Class<?>) genericReturnType;
+            if (Numerics.isNumeric(returnType))
+                return Numerics.downconverterFor(returnType);
+            if (Instant.class.equals(returnType))
+                return obj -> obj == null ? null : ((Date) obj).toInstant();
+            if (DynamicObject.class.isAssignableFrom(returnType)) {
+                Function<Map, ? extends DynamicObject> factory = Instances.factory((Class) returnType);
+                return obj -> obj == null ? null : factory.apply((Map) obj);
+            }
+            if (returnType.equals(Object.class))
+                return Conversions::convertUntyped;
+            if (!isCollectionType(returnType))
+                return Function.identity();
+        }
+
+        return collectionConverterFor(genericReturnType, rawReturnType, lazy);
+    }
+
+    private static Function<Object, Object> collectionConverterFor(Type genericReturnType, Class<?> rawReturnType, boolean lazy) {
+        Type[] typeArgs;
+        if (genericReturnType instanceof ParameterizedType)
+            typeArgs = ((ParameterizedType) genericReturnType).getActualTypeArguments();
+        else
+            typeArgs = new Type[]{Object.class, Object.class};
+
+        boolean intoClojureMap = rawReturnType.equals(ClojureMap.class);
+        boolean isLazy = lazy && isLazyCollectionType(rawReturnType);
+        Function<Object, Object> elementConverter = converterFor(typeArgs[0], lazy);
+        if (typeArgs.length == 1) {
+            boolean isIdentity = isIdentityCollectionType(rawReturnType, typeArgs);
+            return obj -> {
+                if (obj instanceof Map)
+                    return clojureToJava(obj, genericReturnType);
+                if (isIdentity && obj instanceof IPersistentCollection)
+                    return obj;
+                if (isLazy)
+                    return LazyViews.view(obj, elementConverter, elementConverter, elementConverter);
+                return convertCollection(obj, elementConverter, elementConverter, elementConverter, intoClojureMap);
+            };
+        } else {
+            Function<Object, Object> valueConverter = converterFor(typeArgs[1], lazy);
+            boolean isIdentity = isIdentityCollectionType(rawReturnType, typeArgs);
+            return obj -> {
+                if (isIdentity && obj instanceof Map && obj instanceof IPersistentCollection)
+                    return obj;
+                if (isLazy)
+                    return LazyViews.view(obj, elementConverter, elementConverter, valueConverter);
+                return convertCollection(obj, elementConverter, elementConverter, valueConverter, intoClojureMap);
+            };
+        }
+    }
+
+    private static Object convertUntyped(Object obj) {
+        return convertCollection(obj, Conversions::convertUntyped, Conversions::convertUntyped, Conversions::convertUntyped, false);
+    }
+
+    private static Object convertCollection(
+            Object obj,
+            Function<Object, Object> elementConverter,
+            Function<Object, Object> keyConverter,
+            Function<Object, Object> valueConverter,
+            boolean intoClojureMap
+    ) {
+        if (obj instanceof List) {
+            return ((Collection<?>) obj).stream().map(elementConverter).collect(Collider.toClojureList());
+        } else if (obj instanceof Set) {
+            return ((Collection<?>) obj).stream().map(elementConverter).collect(Collider.toClojureSet());
+        } else if (obj instanceof Map) {
+            TransientMap<Object, Object> transientMap = Collider.transientMap();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet())
+                transientMap.put(keyConverter.apply(entry.getKey()), valueConverter.apply(entry.getValue()));
+            Object ret = transientMap.toPersistent();
+            if (intoClojureMap)
+                return Collider.intoClojureMap((Map<?, ?>) ret);
+            return ret;
+        }
+        return obj;
+    }
+
+    private static boolean isCollectionType(Class<?> type) {
+        return Collection.class.isAssignableFrom(type)
+                || Map.class.isAssignableFrom(type)
+                || type.isAssignableFrom(List.class)
+                || type.isAssignableFrom(Set.class)
+                || type.isAssignableFrom(Map.class);
+    }
+
+    private static boolean isLazyCollectionType(Class<?> rawType) {
+        return rawType.equals(List.class) || rawType.equals(Set.class) || rawType.equals(Collection.class) || rawType.equals(Map.class);
+    }
+
+    private static boolean isIdentityCollectionType(Class<?> rawType, Type[] typeArgs) {
+        if (typeArgs.length == 1 && !(rawType.equals(List.class) || rawType.equals(Set.class) || rawType.equals(Collection.class)))
+            return false;
+        if (typeArgs.length == 2 && !rawType.equals(Map.class))
+            return false;
+        for (Type typeArg : typeArgs)
+            if (!isIdentityElementType(typeArg))
+                return false;
+        return true;
+    }
+
+    private static boolean isIdentityElementType(Type type) {
+        if (!(type instanceof Class))
+            return false;
+        Class<?> elementType = (Class<?>) type;
+        return !Numerics.isNumeric(elementType)
+                && !Instant.class.equals(elementType)
+                && !Optional.class.equals(elementType)
+                && !DynamicObject.class.isAssignableFrom(elementType)
+                && !isCollectionType(elementType);
+    }
 }
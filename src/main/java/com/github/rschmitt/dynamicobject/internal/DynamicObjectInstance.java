@@ -5,29 +5,40 @@ import com.github.rschmitt.dynamicobject.DynamicObject;
 
 import java.io.StringWriter;
 import java.io.Writer;
-import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
 
 import static java.lang.String.format;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends AFn implements Map, IPersistentMap, IObj, MapEquivalence, IHashEq, DynamicObjectPrintHook, CustomValidationHook<D> {
-    private static final Object Default = new Object();
     private static final Object Null = new Object();
+    private static final AtomicReferenceFieldUpdater<DynamicObjectInstance, AtomicReferenceArray> ValueSlots =
+            AtomicReferenceFieldUpdater.newUpdater(DynamicObjectInstance.class, AtomicReferenceArray.class, "valueSlots");
 
     private final Map map;
     private final Class<D> type;
-    private final ConcurrentHashMap valueCache = new ConcurrentHashMap();
+
+    // Indexed by the ordinals assigned in Reflection#getterSlots; allocated on the first cached getter invocation.
+    private volatile AtomicReferenceArray valueSlots;
 
     public DynamicObjectInstance(Map map, Class<D> type) {
         this.map = map;
         this.type = type;
     }
 
+    /*
+     * Creates another instance of the same proxy class, backed by the given map. This is implemented by each proxy
+     * class as a direct constructor call (see InvokeDynamicInvocationHandler), so updates never go through the
+     * per-type lookup in Instances#wrap.
+     */
+    protected abstract DynamicObjectInstance<D> $$newInstance(Map map);
+
     public Map getMap() {
         return map;
     }
@@ -58,12 +69,12 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
     }
 
     public void prettyPrint() {
-        ClojureStuff.Pprint.invoke(this);
+        ClojureStuff.pprint().invoke(this);
     }
 
     public String toFormattedString() {
         Writer w = new StringWriter();
-        ClojureStuff.Pprint.invoke(this, w);
+        ClojureStuff.pprint().invoke(this, w);
         return w.toString();
     }
 
@@ -74,7 +85,7 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
             }
         };
         Map mergedMap = (Map) ClojureStuff.MergeWith.invoke(ignoreNulls, map, other.getMap());
-        return DynamicObject.wrap(mergedMap, type);
+        return (D) $$newInstance(mergedMap);
     }
 
     public D intersect(D arg) {
@@ -86,23 +97,47 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
     }
 
     private D diff(D arg, int idx) {
-        Object array = ClojureStuff.Diff.invoke(map, arg.getMap());
+        Object array = ClojureStuff.diff().invoke(map, arg.getMap());
         Object union = ClojureStuff.Nth.invoke(array, idx);
         if (union == null) union = ClojureStuff.EmptyMap;
-        return DynamicObject.wrap((Map) union, type);
+        return (D) $$newInstance((Map) union);
     }
 
     public D convertAndAssoc(Object key, Object value) {
         return (D) assoc(key, Conversions.javaToClojure(value));
     }
 
+    public D assocLong(Object key, long value) {
+        return (D) assoc(key, value);
+    }
+
+    public D assocDouble(Object key, double value) {
+        return (D) assoc(key, value);
+    }
+
+    public D assocFloat(Object key, float value) {
+        return (D) assoc(key, Numerics.upconvert(value));
+    }
+
+    public D assocBoolean(Object key, boolean value) {
+        return (D) assoc(key, value);
+    }
+
     @Override
     public IPersistentMap assoc(Object key, Object value) {
-        return (DynamicObjectInstance) DynamicObject.wrap((Map) ClojureStuff.Assoc.invoke(map, key, value), type);
+        if (map instanceof BatchMap) {
+            ((BatchMap) map).assoc(key, value);
+            return this;
+        }
+        return $$newInstance((Map) ClojureStuff.Assoc.invoke(map, key, value));
     }
 
     public D assocMeta(Object key, Object value) {
-        return DynamicObject.wrap((Map) ClojureStuff.VaryMeta.invoke(map, ClojureStuff.Assoc, key, value), type);
+        if (map instanceof BatchMap) {
+            ((BatchMap) map).assocMeta(key, value);
+            return (D) this;
+        }
+        return (D) $$newInstance((Map) ClojureStuff.VaryMeta.invoke(map, ClojureStuff.Assoc, key, value));
     }
 
     public Object getMetadataFor(Object key) {
@@ -110,29 +145,85 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
         return ClojureStuff.Get.invoke(meta, key);
     }
 
-    public Object invokeGetter(Object key, boolean isRequired, Type genericReturnType) {
-        Object value = getAndCacheValueFor(key, genericReturnType);
+    public Object invokeGetter(int slot, int slotCount, Object key, boolean isRequired, Function<Object, Object> converter) {
+        Object value = getAndCacheValueFor(slot, slotCount, key, converter);
         if (value == null && isRequired)
             throw new NullPointerException(format("Required field %s was null", key.toString()));
         return value;
     }
 
     @SuppressWarnings("unchecked")
-    public Object getAndCacheValueFor(Object key, Type genericReturnType) {
-        Object cachedValue = valueCache.getOrDefault(key, Default);
+    public Object getAndCacheValueFor(int slot, int slotCount, Object key, Function<Object, Object> converter) {
+        if (slot < 0 || map instanceof BatchMap) return getValueFor(key, converter);
+        AtomicReferenceArray slots = getValueSlots(slotCount);
+        Object cachedValue = slots.get(slot);
         if (cachedValue == Null) return null;
-        if (cachedValue != Default) return cachedValue;
-        Object value = getValueFor(key, genericReturnType);
-        if (value == null)
-            valueCache.putIfAbsent(key, Null);
-        else
-            valueCache.putIfAbsent(key, value);
+        if (cachedValue != null) return cachedValue;
+        Object value = getValueFor(key, converter);
+        slots.lazySet(slot, value == null ? Null : value);
+        return value;
+    }
+
+    private AtomicReferenceArray getValueSlots(int slotCount) {
+        AtomicReferenceArray slots = valueSlots;
+        if (slots != null) return slots;
+        slots = new AtomicReferenceArray(slotCount);
+        if (ValueSlots.compareAndSet(this, null, slots))
+            return slots;
+        return valueSlots;
+    }
+
+    /*
+     * Specialized getters for primitive return types. These unbox directly from the backing map, and bypass both the
+     * value cache and the conversion machinery. Numbers are unboxed through Number, since the map may hold any numeric
+     * type, whatever the getter's type is: Edn reads 1 as a Long even for a double field, and a map that was built in
+     * Java may hold Integers or Floats.
+     */
+    public long getLong(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).longValue();
+    }
+
+    public int getInt(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).intValue();
+    }
+
+    public short getShort(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).shortValue();
+    }
+
+    public byte getByte(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).byteValue();
+    }
+
+    public double getDouble(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).doubleValue();
+    }
+
+    public float getFloat(Object key, boolean isRequired) {
+        return ((Number) getPrimitive(key, isRequired)).floatValue();
+    }
+
+    public boolean getBoolean(Object key, boolean isRequired) {
+        return (Boolean) getPrimitive(key, isRequired);
+    }
+
+    public char getChar(Object key, boolean isRequired) {
+        return (Character) getPrimitive(key, isRequired);
+    }
+
+    private Object getPrimitive(Object key, boolean isRequired) {
+        Object value = map.get(key);
+        if (value == null) {
+            if (isRequired)
+                throw new NullPointerException(format("Required field %s was null", key.toString()));
+            throw new NullPointerException(format("Primitive field %s was null", key.toString()));
+        }
         return value;
     }
 
-    public Object getValueFor(Object key, Type genericReturnType) {
+    public Object getValueFor(Object key, Function<Object, Object> converter) {
         Object val = map.get(key);
-        return Conversions.clojureToJava(val, genericReturnType);
+        return converter.apply(val);
     }
 
     public Object $$noop() {
@@ -222,12 +313,12 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
     @Override
     public IPersistentCollection cons(Object o) {
         Map newMap = (Map) ((IPersistentCollection) map).cons(o);
-        return (DynamicObjectInstance) DynamicObject.wrap(newMap, type);
+        return $$newInstance(newMap);
     }
 
     @Override
     public IPersistentCollection empty() {
-        return (DynamicObjectInstance) DynamicObject.wrap(ClojureStuff.EmptyMap, type);
+        return $$newInstance(ClojureStuff.EmptyMap);
     }
 
     @Override
@@ -243,13 +334,13 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
     @Override
     public IPersistentMap assocEx(Object key, Object val) {
         Object newMap = ((IPersistentMap) map).assocEx(key, val);
-        return (DynamicObjectInstance) DynamicObject.wrap((Map) newMap, type);
+        return $$newInstance((Map) newMap);
     }
 
     @Override
     public IPersistentMap without(Object key) {
         Object newMap = ((IPersistentMap) map).without(key);
-        return (DynamicObjectInstance) DynamicObject.wrap((Map) newMap, type);
+        return $$newInstance((Map) newMap);
     }
 
     @Override
@@ -260,7 +351,7 @@ public abstract class DynamicObjectInstance<D extends DynamicObject<D>> extends
     @Override
     public IObj withMeta(IPersistentMap meta) {
         Object newMap = ClojureStuff.VaryMeta.invoke(map, meta);
-        return (DynamicObjectInstance) DynamicObject.wrap((Map) newMap, type);
+        return $$newInstance((Map) newMap);
     }
 
     @Override
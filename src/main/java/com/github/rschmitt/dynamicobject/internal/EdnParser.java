@@ -0,0 +1,787 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import clojure.lang.BigInt;
+import clojure.lang.EdnReader;
+import clojure.lang.IFn;
+import clojure.lang.ILookup;
+import clojure.lang.IMapEntry;
+import clojure.lang.IMeta;
+import clojure.lang.IObj;
+import clojure.lang.IPersistentMap;
+import clojure.lang.IReference;
+import clojure.lang.ISeq;
+import clojure.lang.Keyword;
+import clojure.lang.LazilyPersistentVector;
+import clojure.lang.LineNumberingPushbackReader;
+import clojure.lang.Numbers;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentList;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Util;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * An Edn reader that is a line-for-line equivalent of clojure.lang.EdnReader (as of Clojure 1.9), minus the
+ * indirection: there are no reader macro tables and no options map that has to be built and consulted for every read.
+ * Tagged elements are dispatched through the reader table of a Registry.
+ *
+ * Keywords and symbols are interned once per parser, so a stream of similar records only pays for symbol validation
+ * the first time each key is seen.
+ *
+ * A parser reads from a String, from a UTF-8 byte array or buffer, which is decoded in place as it is read, or from a
+ * PushbackReader, in which case it reads no further than the end of each element, just like clojure.edn/read, so the
+ * reader can be shared with other code.
+ */
+@SuppressWarnings("rawtypes")
+final class EdnParser {
+    // These are the patterns used by clojure.lang.EdnReader.
+    private static final Pattern symbolPat = Pattern.compile("[:]?([\\D&&[^/]].*/)?(/|[\\D&&[^/]][^/]*)");
+    private static final Pattern intPat = Pattern.compile("([-+]?)(?:(0)|([1-9][0-9]*)|0[xX]([0-9A-Fa-f]+)|0([0-7]+)|([1-9][0-9]?)[rR]([0-9A-Za-z]+)|0[0-9]+)(N)?");
+    private static final Pattern ratioPat = Pattern.compile("([-+]?[0-9]+)/([0-9]+)");
+    private static final Pattern floatPat = Pattern.compile("([-+]?[0-9]+(\\.[0-9]*)?([eE][-+]?[0-9]+)?)(M)?");
+
+    private static final Keyword TagKey = Keyword.intern(null, "tag");
+    private static final Keyword LineKey = Keyword.intern(null, "line");
+    private static final Keyword ColumnKey = Keyword.intern(null, "column");
+
+    // The value of a form that produces no value, such as a comment or a discarded element
+    private static final Object NOTHING = new Object();
+
+    private final Source in;
+    private final ILookup readers;
+    private final IFn defaultReader;
+    private final StringBuilder sb = new StringBuilder();
+    private final HashMap<String, Object> symbols = new HashMap<>();
+
+    private EdnParser(Source in, ILookup readers, IFn defaultReader) {
+        this.in = in;
+        this.readers = readers;
+        this.defaultReader = defaultReader;
+    }
+
+    static EdnParser of(String edn, ILookup readers, IFn defaultReader) {
+        return new EdnParser(new StringSource(edn), readers, defaultReader);
+    }
+
+    static EdnParser of(ByteBuffer utf8, ILookup readers, IFn defaultReader) {
+        return new EdnParser(new Utf8Source(utf8), readers, defaultReader);
+    }
+
+    static EdnParser of(PushbackReader reader, ILookup readers, IFn defaultReader) {
+        return new EdnParser(new ReaderSource(reader), readers, defaultReader);
+    }
+
+    /*
+     * Reads the next top-level element, or returns eofValue if there is none.
+     */
+    Object read(Object eofValue) {
+        try {
+            return read(false, eofValue);
+        } catch (Exception e) {
+            if (!(in instanceof ReaderSource) || !(((ReaderSource) in).reader instanceof LineNumberingPushbackReader))
+                throw Util.sneakyThrow(e);
+            LineNumberingPushbackReader reader = (LineNumberingPushbackReader) ((ReaderSource) in).reader;
+            throw new EdnReader.ReaderException(reader.getLineNumber(), reader.getColumnNumber(), e);
+        }
+    }
+
+    private Object read(boolean eofIsError, Object eofValue) {
+        for (; ; ) {
+            int ch = in.read();
+            while (isWhitespace(ch))
+                ch = in.read();
+
+            if (ch == -1) {
+                if (eofIsError)
+                    throw Util.runtimeException("EOF while reading");
+                return eofValue;
+            }
+
+            if (Character.isDigit(ch))
+                return readNumber((char) ch);
+
+            if (isMacro(ch)) {
+                Object ret = readMacro(ch);
+                if (ret == NOTHING)
+                    continue;
+                return ret;
+            }
+
+            if (ch == '+' || ch == '-') {
+                int ch2 = in.read();
+                if (Character.isDigit(ch2)) {
+                    in.unread(ch2);
+                    return readNumber((char) ch);
+                }
+                in.unread(ch2);
+            }
+
+            return interpretToken(readToken((char) ch, true));
+        }
+    }
+
+    private Object readRequired() {
+        return read(true, null);
+    }
+
+    private Object readMacro(int ch) {
+        switch (ch) {
+            case '"': return readString();
+            case ';': return readComment();
+            case '^': return readMeta();
+            case '(': return readList();
+            case '[': return LazilyPersistentVector.create(readDelimitedList(']'));
+            case '{': return readMap();
+            case '\\': return readCharacter();
+            case '#': return readDispatch();
+            case ')':
+            case ']':
+            case '}':
+                throw Util.runtimeException("Unmatched delimiter: " + (char) ch);
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private Object readDispatch() {
+        int ch = in.read();
+        if (ch == -1)
+            throw Util.runtimeException("EOF while reading character");
+        switch (ch) {
+            case '#': return readSymbolicValue();
+            case '^': return readMeta();
+            case '{': return readSet();
+            case '<': throw Util.runtimeException("Unreadable form");
+            case '_':
+                readRequired();
+                return NOTHING;
+            case ':': return readNamespaceMap();
+            default:
+                if (Character.isLetter(ch)) {
+                    in.unread(ch);
+                    return readTagged();
+                }
+                throw Util.runtimeException(String.format("No dispatch macro for: %c", (char) ch));
+        }
+    }
+
+    private Object readComment() {
+        int ch;
+        do {
+            ch = in.read();
+        } while (ch != -1 && ch != '\n' && ch != '\r');
+        return NOTHING;
+    }
+
+    private Object readList() {
+        List list = readDelimitedList(')');
+        if (list.isEmpty())
+            return PersistentList.EMPTY;
+        return PersistentList.create(list);
+    }
+
+    private List readDelimitedList(char delim) {
+        int firstLine = in.line();
+        ArrayList<Object> a = new ArrayList<>();
+        for (Object o = readDelimited(delim, firstLine); o != NOTHING; o = readDelimited(delim, firstLine))
+            a.add(o);
+        return a;
+    }
+
+    /*
+     * Reads the next element of a delimited collection, returning NOTHING once the delimiter has been read.
+     */
+    private Object readDelimited(char delim, int firstLine) {
+        for (; ; ) {
+            int ch = in.read();
+            while (isWhitespace(ch))
+                ch = in.read();
+
+            if (ch == -1)
+                throw Util.runtimeException(firstLine < 0 ? "EOF while reading" : "EOF while reading, starting at line " + firstLine);
+
+            if (ch == delim)
+                return NOTHING;
+
+            Object o;
+            if (isMacro(ch)) {
+                o = readMacro(ch);
+            } else {
+                in.unread(ch);
+                o = readRequired();
+            }
+            if (o != NOTHING)
+                return o;
+        }
+    }
+
+    /*
+     * The whole form is read before it is checked, as in EdnReader, so that a malformed element is reported before a
+     * duplicate key, and so that the reader is left after the form either way.
+     */
+    private Object readMap() {
+        Object[] a = readDelimitedList('}').toArray();
+        if ((a.length & 1) == 1)
+            throw Util.runtimeException("Map literal must contain an even number of forms");
+        return RT.map(a);
+    }
+
+    private Object readSet() {
+        return PersistentHashSet.createWithCheck(readDelimitedList('}'));
+    }
+
+    private Object readNamespaceMap() {
+        Object sym = read(true, null);
+        if (!(sym instanceof Symbol) || ((Symbol) sym).getNamespace() != null)
+            throw new RuntimeException("Namespaced map must specify a valid namespace: " + sym);
+        String ns = ((Symbol) sym).getName();
+
+        int nextChar = in.read();
+        while (isWhitespace(nextChar))
+            nextChar = in.read();
+        if ('{' != nextChar)
+            throw new RuntimeException("Namespaced map must specify a map");
+
+        List kvs = readDelimitedList('}');
+        if ((kvs.size() & 1) == 1)
+            throw Util.runtimeException("Namespaced map literal must contain an even number of forms");
+
+        Object[] a = new Object[kvs.size()];
+        for (int i = 0; i < a.length; i += 2) {
+            Object key = kvs.get(i);
+            if (key instanceof Keyword) {
+                Keyword kw = (Keyword) key;
+                if (kw.getNamespace() == null)
+                    key = Keyword.intern(ns, kw.getName());
+                else if (kw.getNamespace().equals("_"))
+                    key = Keyword.intern(null, kw.getName());
+            } else if (key instanceof Symbol) {
+                Symbol s = (Symbol) key;
+                if (s.getNamespace() == null)
+                    key = Symbol.intern(ns, s.getName());
+                else if (s.getNamespace().equals("_"))
+                    key = Symbol.intern(null, s.getName());
+            }
+            a[i] = key;
+            a[i + 1] = kvs.get(i + 1);
+        }
+        return RT.map(a);
+    }
+
+    private Object readSymbolicValue() {
+        Object o = readRequired();
+        if (!(o instanceof Symbol))
+            throw Util.runtimeException("Invalid token: ##" + o);
+        switch (((Symbol) o).toString()) {
+            case "Inf": return Double.POSITIVE_INFINITY;
+            case "-Inf": return Double.NEGATIVE_INFINITY;
+            case "NaN": return Double.NaN;
+            default: throw Util.runtimeException("Unknown symbolic value: ##" + o);
+        }
+    }
+
+    private Object readMeta() {
+        int line = in.line();
+        int column = in.column();
+        Object meta = readRequired();
+        if (meta instanceof Symbol || meta instanceof String)
+            meta = RT.map(TagKey, meta);
+        else if (meta instanceof Keyword)
+            meta = RT.map(meta, RT.T);
+        else if (!(meta instanceof IPersistentMap))
+            throw new IllegalArgumentException("Metadata must be Symbol,Keyword,String or Map");
+
+        Object o = readRequired();
+        if (!(o instanceof IMeta))
+            throw new IllegalArgumentException("Metadata can only be applied to IMetas");
+
+        if (line != -1 && o instanceof ISeq)
+            meta = ((IPersistentMap) meta).assoc(LineKey, line).assoc(ColumnKey, column);
+        if (o instanceof IReference) {
+            ((IReference) o).resetMeta((IPersistentMap) meta);
+            return o;
+        }
+        Object ometa = RT.meta(o);
+        for (ISeq s = RT.seq(meta); s != null; s = s.next()) {
+            IMapEntry kv = (IMapEntry) s.first();
+            ometa = RT.assoc(ometa, kv.getKey(), kv.getValue());
+        }
+        return ((IObj) o).withMeta((IPersistentMap) ometa);
+    }
+
+    private Object readTagged() {
+        Object name = read(true, null);
+        if (!(name instanceof Symbol))
+            throw new RuntimeException("Reader tag must be a symbol");
+        Symbol tag = (Symbol) name;
+        Object o = readRequired();
+
+        IFn dataReader = (IFn) RT.get(readers, tag);
+        if (dataReader == null)
+            dataReader = (IFn) RT.get(RT.DEFAULT_DATA_READERS.deref(), tag);
+        if (dataReader == null) {
+            if (defaultReader != null)
+                return defaultReader.invoke(tag, o);
+            throw new RuntimeException("No reader function for tag " + tag.toString());
+        }
+        return dataReader.invoke(o);
+    }
+
+    private Object readString() {
+        StringBuilder sb = new StringBuilder();
+        for (int ch = in.read(); ch != '"'; ch = in.read()) {
+            if (ch == -1)
+                throw Util.runtimeException("EOF while reading string");
+            if (ch == '\\') {
+                ch = in.read();
+                if (ch == -1)
+                    throw Util.runtimeException("EOF while reading string");
+                switch (ch) {
+                    case 't': ch = '\t'; break;
+                    case 'r': ch = '\r'; break;
+                    case 'n': ch = '\n'; break;
+                    case '\\': break;
+                    case '"': break;
+                    case 'b': ch = '\b'; break;
+                    case 'f': ch = '\f'; break;
+                    case 'u':
+                        ch = in.read();
+                        if (Character.digit(ch, 16) == -1)
+                            throw Util.runtimeException("Invalid unicode escape: \\u" + (char) ch);
+                        ch = readUnicodeChar(ch, 16, 4, true);
+                        break;
+                    default:
+                        if (Character.isDigit(ch)) {
+                            ch = readUnicodeChar(ch, 8, 3, false);
+                            if (ch > 0377)
+                                throw Util.runtimeException("Octal escape sequence must be in range [0, 377].");
+                        } else {
+                            throw Util.runtimeException("Unsupported escape character: \\" + (char) ch);
+                        }
+                }
+            }
+            sb.append((char) ch);
+        }
+        return sb.toString();
+    }
+
+    private Object readCharacter() {
+        int ch = in.read();
+        if (ch == -1)
+            throw Util.runtimeException("EOF while reading character");
+        String token = readToken((char) ch, false);
+        if (token.length() == 1)
+            return token.charAt(0);
+        switch (token) {
+            case "newline": return '\n';
+            case "space": return ' ';
+            case "tab": return '\t';
+            case "backspace": return '\b';
+            case "formfeed": return '\f';
+            case "return": return '\r';
+        }
+        if (token.startsWith("u")) {
+            char c = (char) readUnicodeChar(token, 1, 4, 16);
+            if (c >= '\uD800' && c <= '\uDFFF')
+                throw Util.runtimeException("Invalid character constant: \\u" + Integer.toString(c, 16));
+            return c;
+        }
+        if (token.startsWith("o")) {
+            int len = token.length() - 1;
+            if (len > 3)
+                throw Util.runtimeException("Invalid octal escape sequence length: " + len);
+            int uc = readUnicodeChar(token, 1, len, 8);
+            if (uc > 0377)
+                throw Util.runtimeException("Octal escape sequence must be in range [0, 377].");
+            return (char) uc;
+        }
+        throw Util.runtimeException("Unsupported character: \\" + token);
+    }
+
+    private int readUnicodeChar(int initch, int base, int length, boolean exact) {
+        int uc = Character.digit(initch, base);
+        if (uc == -1)
+            throw new IllegalArgumentException("Invalid digit: " + (char) initch);
+        int i = 1;
+        for (; i < length; ++i) {
+            int ch = in.read();
+            if (ch == -1 || isWhitespace(ch) || isMacro(ch)) {
+                in.unread(ch);
+                break;
+            }
+            int d = Character.digit(ch, base);
+            if (d == -1)
+                throw new IllegalArgumentException("Invalid digit: " + (char) ch);
+            uc = uc * base + d;
+        }
+        if (i != length && exact)
+            throw new IllegalArgumentException("Invalid character length: " + i + ", should be: " + length);
+        return uc;
+    }
+
+    private static int readUnicodeChar(String token, int offset, int length, int base) {
+        if (token.length() != offset + length)
+            throw new IllegalArgumentException("Invalid unicode character: \\" + token);
+        int uc = 0;
+        for (int i = offset; i < offset + length; ++i) {
+            int d = Character.digit(token.charAt(i), base);
+            if (d == -1)
+                throw new IllegalArgumentException("Invalid digit: " + token.charAt(i));
+            uc = uc * base + d;
+        }
+        return (char) uc;
+    }
+
+    private String readToken(char initch, boolean leadConstituent) {
+        if (leadConstituent && nonConstituent(initch))
+            throw Util.runtimeException("Invalid leading character: " + initch);
+
+        sb.setLength(0);
+        sb.append(initch);
+        for (; ; ) {
+            int ch = in.read();
+            if (ch == -1 || isWhitespace(ch) || isTerminatingMacro(ch)) {
+                in.unread(ch);
+                return sb.toString();
+            } else if (nonConstituent(ch)) {
+                throw Util.runtimeException("Invalid constituent character: " + (char) ch);
+            }
+            sb.append((char) ch);
+        }
+    }
+
+    private Object readNumber(char initch) {
+        sb.setLength(0);
+        sb.append(initch);
+        for (; ; ) {
+            int ch = in.read();
+            if (ch == -1 || isWhitespace(ch) || isMacro(ch)) {
+                in.unread(ch);
+                break;
+            }
+            sb.append((char) ch);
+        }
+
+        Object n = matchNumber(sb);
+        if (n == null)
+            throw new NumberFormatException("Invalid number: " + sb);
+        return n;
+    }
+
+    private Object interpretToken(String s) {
+        switch (s) {
+            case "nil": return null;
+            case "true": return RT.T;
+            case "false": return RT.F;
+        }
+
+        Object ret = symbols.get(s);
+        if (ret == null) {
+            ret = matchSymbol(s);
+            if (ret == null)
+                throw Util.runtimeException("Invalid token: " + s);
+            if (symbols.size() < 1024)
+                symbols.put(s, ret);
+        }
+        return ret;
+    }
+
+    private static Object matchSymbol(String s) {
+        Matcher m = symbolPat.matcher(s);
+        if (m.matches()) {
+            String ns = m.group(1);
+            String name = m.group(2);
+            if (ns != null && ns.endsWith(":/") || name.endsWith(":") || s.indexOf("::", 1) != -1)
+                return null;
+            if (s.startsWith("::"))
+                return null;
+            boolean isKeyword = s.charAt(0) == ':';
+            Symbol sym = Symbol.intern(s.substring(isKeyword ? 1 : 0));
+            if (isKeyword)
+                return Keyword.intern(sym);
+            return sym;
+        }
+        return null;
+    }
+
+    private static Object matchNumber(CharSequence s) {
+        Object n = matchLong(s);
+        if (n != null)
+            return n;
+
+        Matcher m = intPat.matcher(s);
+        if (m.matches()) {
+            if (m.group(2) != null) {
+                if (m.group(8) != null)
+                    return BigInt.ZERO;
+                return Numbers.num(0);
+            }
+            boolean negate = (m.group(1).equals("-"));
+            String digits;
+            int radix = 10;
+            if ((digits = m.group(3)) != null)
+                radix = 10;
+            else if ((digits = m.group(4)) != null)
+                radix = 16;
+            else if ((digits = m.group(5)) != null)
+                radix = 8;
+            else if ((digits = m.group(7)) != null)
+                radix = Integer.parseInt(m.group(6));
+            if (digits == null)
+                return null;
+            BigInteger bn = new BigInteger(digits, radix);
+            if (negate)
+                bn = bn.negate();
+            if (m.group(8) != null)
+                return BigInt.fromBigInteger(bn);
+            return bn.bitLength() < 64 ? Numbers.num(bn.longValue()) : BigInt.fromBigInteger(bn);
+        }
+        m = floatPat.matcher(s);
+        if (m.matches()) {
+            if (m.group(4) != null)
+                return new BigDecimal(m.group(1));
+            return Double.parseDouble(s.toString());
+        }
+        m = ratioPat.matcher(s);
+        if (m.matches()) {
+            String numerator = m.group(1);
+            if (numerator.startsWith("+"))
+                numerator = numerator.substring(1);
+
+            return Numbers.divide(Numbers.reduceBigInt(BigInt.fromBigInteger(new BigInteger(numerator))),
+                    Numbers.reduceBigInt(BigInt.fromBigInteger(new BigInteger(m.group(2)))));
+        }
+        return null;
+    }
+
+    /*
+     * Most numbers are small decimal integers, which intPat would parse into a Long anyway; they can be recognized
+     * without a regex or a BigInteger. Returns null for anything else.
+     */
+    private static Long matchLong(CharSequence s) {
+        int len = s.length();
+        int start = (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+        int digits = len - start;
+        if (digits < 1 || digits > 18 || (s.charAt(start) == '0' && digits > 1))
+            return null;
+        long n = 0;
+        for (int i = start; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return null;
+            n = n * 10 + (c - '0');
+        }
+        return s.charAt(0) == '-' ? -n : n;
+    }
+
+    private static boolean isWhitespace(int ch) {
+        return Character.isWhitespace(ch) || ch == ',';
+    }
+
+    private static boolean isMacro(int ch) {
+        switch (ch) {
+            case '"':
+            case ';':
+            case '^':
+            case '(':
+            case ')':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '\\':
+            case '#':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTerminatingMacro(int ch) {
+        return ch != '#' && ch != '\'' && isMacro(ch);
+    }
+
+    private static boolean nonConstituent(int ch) {
+        return ch == '@' || ch == '`' || ch == '~';
+    }
+
+    private abstract static class Source {
+        abstract int read();
+
+        abstract void unread(int ch);
+
+        int line() {
+            return -1;
+        }
+
+        int column() {
+            return -1;
+        }
+    }
+
+    private static final class StringSource extends Source {
+        private final CharSequence s;
+        private int pos = 0;
+
+        StringSource(CharSequence s) {
+            this.s = s;
+        }
+
+        @Override
+        int read() {
+            return pos < s.length() ? s.charAt(pos++) : -1;
+        }
+
+        @Override
+        void unread(int ch) {
+            if (ch != -1)
+                pos--;
+        }
+    }
+
+    /*
+     * Decodes UTF-8 as it is read, straight from the buffer, which is never copied. Like a decoder with
+     * CodingErrorAction.REPLACE, each malformed byte is read as U+FFFD. Characters outside the BMP are read as surrogate
+     * pairs, so that the parser sees the same chars as it would in a String.
+     *
+     * Only the last char read can be unread, which is all the parser ever needs; unread restores the position of that
+     * char.
+     */
+    private static final class Utf8Source extends Source {
+        private static final char REPLACEMENT = '\uFFFD';
+
+        private final ByteBuffer in;
+        private final int limit;
+        private int pos;
+        // The low surrogate to return next, if the last char read was a high surrogate
+        private char low;
+        private int lastPos;
+        private char lastLow;
+
+        Utf8Source(ByteBuffer in) {
+            this.in = in;
+            this.pos = in.position();
+            this.limit = in.limit();
+        }
+
+        @Override
+        int read() {
+            lastPos = pos;
+            lastLow = low;
+            if (low != 0) {
+                char c = low;
+                low = 0;
+                return c;
+            }
+            if (pos >= limit)
+                return -1;
+            int b = in.get(pos);
+            if (b >= 0) {
+                pos++;
+                return b;
+            }
+            return readMultiByte(b & 0xFF);
+        }
+
+        /*
+         * A malformed sequence is replaced by one U+FFFD for its longest valid prefix, or for its first byte if it has
+         * none, which is what the JDK's decoder does. An encoded surrogate is replaced as a whole.
+         */
+        private int readMultiByte(int b) {
+            int length;
+            int cp;
+            int lo = 0x80;
+            int hi = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                length = 2;
+                cp = b & 0x1F;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                length = 3;
+                cp = b & 0x0F;
+                if (b == 0xE0)
+                    lo = 0xA0;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                length = 4;
+                cp = b & 0x07;
+                if (b == 0xF0)
+                    lo = 0x90;
+                if (b == 0xF4)
+                    hi = 0x8F;
+            } else {
+                pos++;
+                return REPLACEMENT;
+            }
+            int n = 1;
+            for (; n < length && pos + n < limit; n++) {
+                int next = in.get(pos + n) & 0xFF;
+                if (n == 1 ? next < lo || next > hi : (next & 0xC0) != 0x80)
+                    break;
+                cp = (cp << 6) | (next & 0x3F);
+            }
+            pos += n;
+            if (n < length || Character.isSurrogate((char) cp))
+                return REPLACEMENT;
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+                return cp;
+            low = Character.lowSurrogate(cp);
+            return Character.highSurrogate(cp);
+        }
+
+        @Override
+        void unread(int ch) {
+            if (ch == -1)
+                return;
+            pos = lastPos;
+            low = lastLow;
+        }
+    }
+
+    private static final class ReaderSource extends Source {
+        private final PushbackReader reader;
+
+        ReaderSource(PushbackReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        int read() {
+            try {
+                return reader.read();
+            } catch (IOException e) {
+                throw Util.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        void unread(int ch) {
+            if (ch == -1)
+                return;
+            try {
+                reader.unread(ch);
+            } catch (IOException e) {
+                throw Util.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        int line() {
+            return reader instanceof LineNumberingPushbackReader ? ((LineNumberingPushbackReader) reader).getLineNumber() : -1;
+        }
+
+        @Override
+        int column() {
+            return reader instanceof LineNumberingPushbackReader ? ((LineNumberingPushbackReader) reader).getColumnNumber() : -1;
+        }
+    }
+}
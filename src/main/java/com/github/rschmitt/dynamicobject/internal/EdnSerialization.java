@@ -3,47 +3,55 @@ package com.github.rschmitt.dynamicobject.internal;
 import clojure.java.api.Clojure;
 import clojure.lang.AFn;
 import clojure.lang.IPersistentMap;
+import clojure.lang.MultiFn;
 import com.github.rschmitt.dynamicobject.DynamicObject;
-import com.github.rschmitt.dynamicobject.EdnTranslator;
 import com.github.rschmitt.dynamicobject.Unknown;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PushbackReader;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BiFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.*;
-import static java.lang.String.format;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class EdnSerialization {
     static {
-        String clojureCode =
-                "(defmethod print-method com.github.rschmitt.dynamicobject.internal.DynamicObjectPrintHook " +
-                        "[o, ^java.io.Writer w]" +
-                        "(com.github.rschmitt.dynamicobject.internal.EdnSerialization/invokePrintMethod o w))";
-        Eval.invoke(ReadString.invoke(clojureCode));
-        PreferMethod.invoke(PrintMethod, DynamicObjectPrintHook.class, IPersistentMap.class);
-        PreferMethod.invoke(PrintMethod, DynamicObjectPrintHook.class, Map.class);
-
-        clojureCode =
-                "(defmethod clojure.pprint/simple-dispatch com.github.rschmitt.dynamicobject.internal.DynamicObjectPrintHook " +
-                        "[o] " +
-                        "(com.github.rschmitt.dynamicobject.internal.EdnSerialization/invokePrettyPrint o))";
-        Eval.invoke(ReadString.invoke(clojureCode));
-        PreferMethod.invoke(SimpleDispatch, DynamicObjectPrintHook.class, IPersistentMap.class);
-        PreferMethod.invoke(SimpleDispatch, DynamicObjectPrintHook.class, Map.class);
+        PrintMethod.addMethod(DynamicObjectPrintHook.class, new DynamicObjectPrintMethod());
+        PrintMethod.preferMethod(DynamicObjectPrintHook.class, IPersistentMap.class);
+        PrintMethod.preferMethod(DynamicObjectPrintHook.class, Map.class);
+        PrintMethod.addMethod(Unknown.class, new AFn() {
+            @Override
+            public Object invoke(Object arg1, Object arg2) {
+                try {
+                    return Unknown.serialize((Unknown) arg1, (Writer) arg2);
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        });
+
+        // If clojure.pprint has already been loaded by someone else, it should be able to print DynamicObjects too.
+        if (isLoaded("clojure.pprint"))
+            simpleDispatch();
+    }
+
+    static void installPrettyPrintMethod(MultiFn simpleDispatch) {
+        simpleDispatch.addMethod(DynamicObjectPrintHook.class, new DynamicObjectPrettyPrint());
+        simpleDispatch.preferMethod(DynamicObjectPrintHook.class, IPersistentMap.class);
+        simpleDispatch.preferMethod(DynamicObjectPrintHook.class, Map.class);
     }
 
     public static class DynamicObjectPrintMethod extends AFn {
@@ -51,13 +59,14 @@ public class EdnSerialization {
         public Object invoke(Object arg1, Object arg2) {
             DynamicObject dynamicObject = (DynamicObject) arg1;
             Writer writer = (Writer) arg2;
-            String tag = recordTagCache.getOrDefault(dynamicObject.getType(), null);
+            Registry registry = EdnWriter.activeRegistry();
+            String tag = registry.tagFor(dynamicObject.getType());
             try {
                 if (tag != null) {
                     writer.write("#");
                     writer.write(tag);
                 }
-                ClojureStuff.PrOn.invoke(dynamicObject.getMap(), writer);
+                EdnWriter.write(dynamicObject.getMap(), writer, registry);
             } catch (IOException ex) {
                 throw new RuntimeException(ex);
             }
@@ -71,13 +80,13 @@ public class EdnSerialization {
             Object arg2 = Deref.invoke(Clojure.var("clojure.core/*out*"));
             DynamicObject dynamicObject = (DynamicObject) arg1;
             Writer writer = (Writer) arg2;
-            String tag = recordTagCache.getOrDefault(dynamicObject.getType(), null);
+            String tag = EdnWriter.activeRegistry().tagFor(dynamicObject.getType());
             try {
                 if (tag != null) {
                     writer.write("#");
                     writer.write(tag);
                 }
-                SimpleDispatch.invoke(dynamicObject.getMap());
+                simpleDispatch().invoke(dynamicObject.getMap());
             } catch (IOException ex) {
                 throw new RuntimeException(ex);
             }
@@ -85,22 +94,16 @@ public class EdnSerialization {
         }
     }
 
-    private static final DynamicObjectPrettyPrint dynamicObjectPrettyPrint = new DynamicObjectPrettyPrint();
-    private static final DynamicObjectPrintMethod dynamicObjectPrintMethod = new DynamicObjectPrintMethod();
-    private static final AtomicReference<Object> translators = new AtomicReference<>(ClojureStuff.EmptyMap);
-    private static final ConcurrentHashMap<Class<?>, EdnTranslatorAdapter<?>> translatorCache = new ConcurrentHashMap<>();
-    private static final AtomicReference<AFn> defaultReader = new AtomicReference<>(getUnknownReader());
-    private static final ConcurrentHashMap<Class<?>, String> recordTagCache = new ConcurrentHashMap<>();
-    private static final Object EOF = Clojure.read(":eof");
+    private static final Object EOF = new Object();
 
-    public static String serialize(Object obj) {
+    public static String serialize(Object obj, Registry registry) {
         StringWriter stringWriter = new StringWriter();
-        serialize(obj, stringWriter);
+        serialize(obj, stringWriter, registry);
         return stringWriter.toString();
     }
 
-    public static void serialize(Object object,  Writer writer) {
-        ClojureStuff.PrOn.invoke(object, writer);
+    public static void serialize(Object object, Writer writer, Registry registry) {
+        write(object, writer, registry);
         try {
             writer.flush();
         } catch (IOException ex) {
@@ -108,116 +111,95 @@ public class EdnSerialization {
         }
     }
 
-    public static <T> T deserialize(String edn, Class<T> type) {
-        return deserialize(new PushbackReader(new StringReader(edn)), type);
-    }
-
-    @SuppressWarnings({"unchecked", "deprecation"})
-    static <T, D extends DynamicObject<D>> T deserialize(PushbackReader streamReader, Class<T> type) {
-        Object opts = getReadOptions();
-        opts = ClojureStuff.Assoc.invoke(opts, EOF, EOF);
-        Object obj = ClojureStuff.Read.invoke(opts, streamReader);
-        if (EOF.equals(obj))
-            throw new NoSuchElementException();
-        if (DynamicObject.class.isAssignableFrom(type) && !(obj instanceof DynamicObject)) {
-            obj = Instances.wrap((Map) obj, (Class<D>) type).afterDeserialization();
+    public static void serialize(Object object, OutputStream out, Registry registry) {
+        byte[] buf = Utf8Writer.borrow();
+        try {
+            serialize(object, Utf8Writer.to(out, buf), registry);
+        } finally {
+            Utf8Writer.release(buf);
         }
-        return type.cast(obj);
-    }
-
-    public static <T> Stream<T> deserializeStream(PushbackReader streamReader, Class<T> type) {
-        Iterator<T> iterator = Serialization.deserializeStreamToIterator(() -> deserialize(streamReader, type), type);
-        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.IMMUTABLE);
-        return StreamSupport.stream(spliterator, false);
     }
 
-    private static AFn getUnknownReader() {
-        String clojureCode = format("(defmethod print-method %s [o, ^java.io.Writer w]" +
-                "(com.github.rschmitt.dynamicobject.Unknown/serialize o w))", Unknown.class.getTypeName());
-        ClojureStuff.Eval.invoke(ClojureStuff.ReadString.invoke(clojureCode));
-        return wrapReaderFunction(Unknown::new);
+    public static byte[] serializeToBytes(Object object, Registry registry) {
+        Utf8Writer writer = Utf8Writer.growable(Utf8Writer.borrow());
+        try {
+            write(object, writer, registry);
+            return Arrays.copyOf(writer.buffer(), writer.finish());
+        } finally {
+            Utf8Writer.release(writer.buffer());
+        }
     }
 
-    public static <T> void setDefaultReader(BiFunction<String, Object, T> reader) {
-        if (reader == null) {
-            defaultReader.set(null);
+    /*
+     * Heap buffers are encoded into in place. Anything else is encoded into a pooled array first, because the length of
+     * the encoding is not known ahead of time.
+     */
+    public static void serialize(Object object, ByteBuffer target, Registry registry) {
+        if (target.hasArray()) {
+            int start = target.arrayOffset() + target.position();
+            Utf8Writer writer = Utf8Writer.fixed(target.array(), start, target.arrayOffset() + target.limit());
+            write(object, writer, registry);
+            target.position(target.position() + writer.finish() - start);
             return;
         }
-        defaultReader.set(wrapReaderFunction(reader));
+
+        Utf8Writer writer = Utf8Writer.growable(Utf8Writer.borrow());
+        try {
+            write(object, writer, registry);
+            int length = writer.finish();
+            if (length > target.remaining())
+                throw new BufferOverflowException();
+            target.put(writer.buffer(), 0, length);
+        } finally {
+            Utf8Writer.release(writer.buffer());
+        }
     }
 
-    private static <T> AFn wrapReaderFunction(BiFunction<String, Object, T> reader) {
-        return new AFn() {
-            @Override
-            public Object invoke(Object arg1, Object arg2) {
-                return reader.apply(arg1.toString(), arg2);
-            }
-        };
+    /*
+     * Like serialize, but without flushing the writer.
+     */
+    public static void write(Object object, Writer writer, Registry registry) {
+        EdnWriter.write(object, writer, registry);
     }
 
-    private static Object getReadOptions() {
-        Object map = ClojureStuff.Assoc.invoke(ClojureStuff.EmptyMap, ClojureStuff.Readers, translators.get());
-        AFn defaultReader = EdnSerialization.defaultReader.get();
-        if (defaultReader != null) {
-            map = ClojureStuff.Assoc.invoke(map, ClojureStuff.Default, defaultReader);
-        }
-        return map;
+    public static <T> T deserialize(String edn, Class<T> type, Registry registry) {
+        return deserialize(EdnParser.of(edn, registry.ednReaders(), registry.defaultReader()), type);
     }
 
-    public static synchronized <T> void registerType(Class<T> type, EdnTranslator<T> translator) {
-        EdnTranslatorAdapter<T> adapter = new EdnTranslatorAdapter<>(translator);
-        EdnTranslatorAdapter<?> currentAdapter = translatorCache.put(type, adapter);
-        if (currentAdapter != null) {
-            // already registered
-            return;
-        }
-        translators.getAndUpdate(translators -> ClojureStuff.Assoc.invoke(translators, ClojureStuff.cachedRead(
-                translator.getTag()), adapter));
-        String clojureCode = format(
-                "(defmethod print-method %s " +
-                        "[o, ^java.io.Writer w] " +
-                        "(com.github.rschmitt.dynamicobject.internal.EdnSerialization/invokeWriter o w \"%s\"))",
-                type.getTypeName(), translator.getTag());
-        ClojureStuff.Eval.invoke(ClojureStuff.ReadString.invoke(clojureCode));
-    }
-
-    public static synchronized <T> void deregisterType(Class<T> type) {
-        EdnTranslatorAdapter<T> adapter = (EdnTranslatorAdapter<T>) translatorCache.get(type);
-        translators.getAndUpdate(translators -> ClojureStuff.Dissoc.invoke(translators, ClojureStuff.cachedRead(
-                adapter.getTag())));
-        ClojureStuff.RemoveMethod.invoke(PrintMethod, adapter);
-        translatorCache.remove(type);
-    }
-
-    public static synchronized <D extends DynamicObject<D>> void registerTag(Class<D> type, String tag) {
-        String currentTagForType = recordTagCache.put(type, tag);
-        if (currentTagForType != null) {
-            // already registered
-            return;
-        }
+    public static <T> T deserialize(ByteBuffer utf8Edn, Class<T> type, Registry registry) {
+        return deserialize(EdnParser.of(utf8Edn, registry.ednReaders(), registry.defaultReader()), type);
+    }
 
-        translators.getAndUpdate(translators -> ClojureStuff.Assoc.invoke(translators, ClojureStuff.cachedRead(
-                tag), new RecordReader<>(type)));
+    private static <T> T deserialize(EdnParser parser, Class<T> type) {
+        Object obj = parser.read(EOF);
+        if (obj == EOF)
+            throw new NoSuchElementException();
+        return convert(obj, type);
     }
 
-    public static synchronized <D extends DynamicObject<D>> void deregisterTag(Class<D> type) {
-        String tag = recordTagCache.get(type);
-        translators.getAndUpdate(translators -> ClojureStuff.Dissoc.invoke(translators, ClojureStuff.cachedRead(tag)));
-        recordTagCache.remove(type);
+    @SuppressWarnings({"unchecked", "deprecation"})
+    private static <T, D extends DynamicObject<D>> T convert(Object obj, Class<T> type) {
+        if (DynamicObject.class.isAssignableFrom(type) && !(obj instanceof DynamicObject)) {
+            obj = Instances.wrap((Map) obj, (Class<D>) type).afterDeserialization();
+        }
+        return type.cast(obj);
     }
 
-    @SuppressWarnings("unused")
-    public static Object invokeWriter(Object obj, Writer writer, String tag) {
-        EdnTranslatorAdapter translator = (EdnTranslatorAdapter<?>) ClojureStuff.Get.invoke(translators.get(), ClojureStuff
-                .cachedRead(tag));
-        return translator.invoke(obj, writer);
+    public static <T> Stream<T> deserializeStream(PushbackReader streamReader, Class<T> type, Registry registry) {
+        EdnParser parser = EdnParser.of(streamReader, registry.ednReaders(), registry.defaultReader());
+        Iterator<T> iterator = Serialization.deserializeStreamToIterator(() -> deserialize(parser, type), type);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
     }
 
-    public static Object invokePrintMethod(Object arg1, Object arg2) {
-        return dynamicObjectPrintMethod.invoke(arg1, arg2);
+    /*
+     * Unlike the PushbackReader version, the stream that is returned can be parallelized.
+     */
+    public static <T> Stream<T> deserializeStream(ByteBuffer utf8Edn, Class<T> type, Registry registry) {
+        return StreamSupport.stream(EdnSpliterator.of(utf8Edn, registry, obj -> convert(obj, type)), false);
     }
 
-    public static Object invokePrettyPrint(Object o) {
-        return dynamicObjectPrettyPrint.invoke(o);
+    public static <T> Stream<T> deserializeFile(Path file, Class<T> type, Registry registry) {
+        return StreamSupport.stream(EdnSpliterator.of(file, registry, obj -> convert(obj, type)), false);
     }
 }
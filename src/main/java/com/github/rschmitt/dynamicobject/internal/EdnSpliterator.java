@@ -0,0 +1,400 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * A splittable source of top-level Edn elements in a buffer of UTF-8 encoded Edn, for parallel deserialization.
+ *
+ * Splitting needs to know where top-level elements begin, which cannot be determined by looking at an arbitrary
+ * position in the input: a newline or a brace might be inside a string, a comment, or a nested collection. So the
+ * input is first scanned once, sequentially, for boundaries between top-level elements. The scan only tracks
+ * delimiters, strings, comments, character literals, and prefixes like tags and metadata, so it is much faster than
+ * actually parsing the input; the parsing is then done in parallel. Since the structural characters of Edn are all
+ * ASCII, and bytes in a multi-byte UTF-8 sequence never are, the scan works on the encoded bytes directly.
+ *
+ * Only enough boundaries are kept to divide the input into chunks of roughly CHUNK_COUNT equal parts, each of which
+ * is read by its own EdnParser. Splits are made on chunk boundaries, so the spliterator is ORDERED.
+ *
+ * If the input is malformed, the scan gives up on finding boundaries at the point where it notices, and the rest of
+ * the input is left in a single chunk, where the parser will report the error.
+ *
+ * A file is memory-mapped rather than read. Since a single mapping cannot be larger than Integer.MAX_VALUE bytes,
+ * larger files are mapped in consecutive windows. Each window after the first starts at the end of the last complete
+ * top-level element in the previous one, so no element is split between two mappings.
+ */
+final class EdnSpliterator<T> implements Spliterator<T> {
+    private static final int CHUNK_COUNT = 1024;
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+    static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final ByteBuffer[] chunks;
+    // offsets[i] is the total size of the chunks before chunk i
+    private final long[] offsets;
+    private final Registry registry;
+    private final Function<Object, T> converter;
+    private int chunk;
+    private final int endChunk;
+    private EdnParser parser;
+
+    private EdnSpliterator(ByteBuffer[] chunks, long[] offsets, int chunk, int endChunk, Registry registry, Function<Object, T> converter) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+        this.chunk = chunk;
+        this.endChunk = endChunk;
+        this.registry = registry;
+        this.converter = converter;
+    }
+
+    static <T> EdnSpliterator<T> of(ByteBuffer utf8Edn, Registry registry, Function<Object, T> converter) {
+        ByteBuffer edn = utf8Edn.slice();
+        List<ByteBuffer> chunks = new ArrayList<>();
+        addChunks(chunks, edn, new Scanner(edn, chunkSize(edn.remaining()), false).scan());
+        return create(chunks, registry, converter);
+    }
+
+    static <T> EdnSpliterator<T> of(Path file, Registry registry, Function<Object, T> converter) {
+        return of(file, MAX_WINDOW_SIZE, registry, converter);
+    }
+
+    static <T> EdnSpliterator<T> of(Path file, long windowSize, Registry registry, Function<Object, T> converter) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkSize = chunkSize(size);
+            long offset = 0;
+            while (offset < size) {
+                long length = Math.min(windowSize, size - offset);
+                boolean last = offset + length == size;
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                Scanner scanner = new Scanner(window, chunkSize, !last);
+                int[] bounds = scanner.scan();
+                addChunks(chunks, window, bounds);
+                if (last || scanner.malformed)
+                    break;
+                int end = bounds[bounds.length - 1];
+                if (end == 0)
+                    throw new RuntimeException("Top-level Edn element at offset " + offset + " in " + file + " is larger than " + windowSize + " bytes");
+                offset += end;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return create(chunks, registry, converter);
+    }
+
+    private static int chunkSize(long length) {
+        return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, length / CHUNK_COUNT));
+    }
+
+    private static void addChunks(List<ByteBuffer> chunks, ByteBuffer edn, int[] bounds) {
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            ByteBuffer chunk = edn.duplicate();
+            chunk.limit(bounds[i + 1]).position(bounds[i]);
+            chunks.add(chunk);
+        }
+    }
+
+    private static <T> EdnSpliterator<T> create(List<ByteBuffer> chunkList, Registry registry, Function<Object, T> converter) {
+        ByteBuffer[] chunks = chunkList.toArray(new ByteBuffer[0]);
+        long[] offsets = new long[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++)
+            offsets[i + 1] = offsets[i] + chunks[i].remaining();
+        return new EdnSpliterator<>(chunks, offsets, 0, chunks.length, registry, converter);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        for (; ; ) {
+            if (parser == null) {
+                if (chunk >= endChunk)
+                    return false;
+                parser = EdnParser.of(chunks[chunk], registry.ednReaders(), registry.defaultReader());
+                chunk++;
+            }
+            Object obj = parser.read(this);
+            if (obj == this) {
+                parser = null;
+                continue;
+            }
+            action.accept(converter.apply(obj));
+            return true;
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int remaining = endChunk - chunk;
+        if (parser != null || remaining < 2)
+            return null;
+        int mid = chunk + remaining / 2;
+        EdnSpliterator<T> prefix = new EdnSpliterator<>(chunks, offsets, chunk, mid, registry, converter);
+        chunk = mid;
+        return prefix;
+    }
+
+    /*
+     * The number of elements is not known, so this is the number of bytes that are left.
+     */
+    @Override
+    public long estimateSize() {
+        return offsets[endChunk] - offsets[chunk];
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | IMMUTABLE;
+    }
+
+    private static final class Scanner {
+        private final ByteBuffer in;
+        private final int length;
+        private final int chunkSize;
+        // Whether the input is a window that ends before the end of the file, and so might end mid-element
+        private final boolean partial;
+        private int pos = 0;
+        private int depth = 0;
+        // For each prefix at the top level (e.g. a tag) that is still waiting for its forms, how many it needs
+        private int[] pending = new int[8];
+        private int pendingCount = 0;
+        private int[] bounds = new int[16];
+        private int boundCount = 0;
+        private int lastComplete = 0;
+        boolean malformed = false;
+
+        Scanner(ByteBuffer in, int chunkSize, boolean partial) {
+            this.in = in;
+            this.length = in.limit();
+            this.chunkSize = chunkSize;
+            this.partial = partial;
+        }
+
+        /*
+         * Returns the chunk boundaries, starting with 0. The last one is the end of the input, unless the input is
+         * partial, in which case it is the end of the last complete top-level element.
+         */
+        int[] scan() {
+            addBound(0);
+            try {
+                scanForms();
+            } catch (IllegalStateException ex) {
+                // The parser will report the actual error.
+                malformed = true;
+            }
+            int end = partial && !malformed ? lastComplete : length;
+            if (bounds[boundCount - 1] != end)
+                addBound(end);
+            return Arrays.copyOf(bounds, boundCount);
+        }
+
+        private void scanForms() {
+            while (pos < length) {
+                int b = in.get(pos);
+                if (isWhitespace(b)) {
+                    pos += codePointLength(b);
+                    continue;
+                }
+                switch (b) {
+                    case ';':
+                        while (pos < length && in.get(pos) != '\n')
+                            pos++;
+                        break;
+                    case '"':
+                        if (skipString())
+                            completeForm();
+                        break;
+                    case '(':
+                    case '[':
+                    case '{':
+                        pos++;
+                        depth++;
+                        break;
+                    case ')':
+                    case ']':
+                    case '}':
+                        pos++;
+                        if (--depth < 0)
+                            throw new IllegalStateException();
+                        completeForm();
+                        break;
+                    case '\\':
+                        pos++;
+                        if (pos >= length)
+                            return;
+                        skipToken();
+                        completeToken();
+                        break;
+                    case '^':
+                        pos++;
+                        addPrefix(2);
+                        break;
+                    case '#':
+                        scanDispatch();
+                        break;
+                    default:
+                        skipToken();
+                        completeToken();
+                }
+            }
+        }
+
+        private void scanDispatch() {
+            int next = pos + 1 < length ? in.get(pos + 1) : -1;
+            switch (next) {
+                case '{':
+                    pos += 2;
+                    depth++;
+                    break;
+                case '_':
+                    pos += 2;
+                    addPrefix(1);
+                    break;
+                case '^':
+                    pos += 2;
+                    addPrefix(2);
+                    break;
+                case ':':
+                    skipToken();
+                    addPrefix(1);
+                    break;
+                default:
+                    if (Character.isLetter(next)) {
+                        skipToken();
+                        addPrefix(1);
+                    } else {
+                        skipToken();
+                        completeToken();
+                    }
+            }
+        }
+
+        /*
+         * Returns false if the input ends before the string does.
+         */
+        private boolean skipString() {
+            pos++;
+            while (pos < length) {
+                int b = in.get(pos++);
+                if (b == '"')
+                    return true;
+                if (b == '\\')
+                    pos++;
+            }
+            return false;
+        }
+
+        /*
+         * Skips a token, which consists of the character at pos and everything up to the next whitespace or terminating
+         * macro character, like EdnReader#readToken.
+         */
+        private void skipToken() {
+            pos += codePointLength(in.get(pos));
+            while (pos < length) {
+                int b = in.get(pos);
+                if (isWhitespace(b) || isTerminatingMacro(b))
+                    return;
+                pos += codePointLength(b);
+            }
+        }
+
+        /*
+         * A token that runs up to the end of the input might continue past the end of a partial input, so it only
+         * counts as a complete form if something follows it.
+         */
+        private void completeToken() {
+            if (pos < length)
+                completeForm();
+        }
+
+        private void addPrefix(int forms) {
+            if (depth > 0)
+                return;
+            if (pendingCount == pending.length)
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            pending[pendingCount++] = forms;
+        }
+
+        private void completeForm() {
+            if (depth > 0)
+                return;
+            while (pendingCount > 0) {
+                if (--pending[pendingCount - 1] > 0)
+                    return;
+                pendingCount--;
+            }
+            lastComplete = pos;
+            if (pos - bounds[boundCount - 1] >= chunkSize && pos < length)
+                addBound(pos);
+        }
+
+        private void addBound(int bound) {
+            if (boundCount == bounds.length)
+                bounds = Arrays.copyOf(bounds, boundCount * 2);
+            bounds[boundCount++] = bound;
+        }
+
+        private boolean isWhitespace(int b) {
+            if (b >= 0)
+                return Character.isWhitespace(b) || b == ',';
+            return Character.isWhitespace(decode(b));
+        }
+
+        private static boolean isTerminatingMacro(int b) {
+            switch (b) {
+                case '"':
+                case ';':
+                case '^':
+                case '(':
+                case ')':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                case '\\':
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /*
+         * The number of bytes in the UTF-8 sequence that starts with the (signed) byte b.
+         */
+        private static int codePointLength(int b) {
+            if (b >= 0)
+                return 1;
+            if ((b & 0xE0) == 0xC0)
+                return 2;
+            if ((b & 0xF0) == 0xE0)
+                return 3;
+            if ((b & 0xF8) == 0xF0)
+                return 4;
+            return 1;
+        }
+
+        /*
+         * Decodes the multi-byte sequence at pos, whose first byte is b. Only used to find out whether it is whitespace,
+         * so supplementary characters, which never are, are not decoded.
+         */
+        private int decode(int b) {
+            int n = codePointLength(b);
+            if (pos + n > length)
+                return -1;
+            if (n == 2)
+                return ((b & 0x1F) << 6) | (in.get(pos + 1) & 0x3F);
+            if (n == 3)
+                return ((b & 0x0F) << 12) | ((in.get(pos + 1) & 0x3F) << 6) | (in.get(pos + 2) & 0x3F);
+            return -1;
+        }
+    }
+}
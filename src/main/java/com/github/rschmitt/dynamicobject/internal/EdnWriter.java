@@ -0,0 +1,302 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import clojure.lang.BigInt;
+import clojure.lang.IFn;
+import clojure.lang.IMeta;
+import clojure.lang.IPersistentMap;
+import clojure.lang.IPersistentSet;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ISeq;
+import clojure.lang.Keyword;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import com.github.rschmitt.dynamicobject.DynamicObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.PrOn;
+import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.PrintMethod;
+
+/*
+ * An Edn printer that produces exactly the same output as clojure.core/pr-on, without going through the print-method
+ * multimethod for every value.
+ *
+ * For each class, the printer asks print-method which method it would dispatch to. If that is one of Clojure's own
+ * methods for a type we know how to print (keywords, strings, numbers, collections, and so on), the DynamicObject print
+ * method, or a registered EdnTranslator, the value is printed directly; anything else, including print methods that
+ * were installed or overridden by the application, is delegated to pr-on. The decisions are cached per class and are
+ * discarded whenever the print-method dispatch table changes. EdnTranslators in the Registry being written with take
+ * precedence over print-method, so that a DynamicObjectSerializer with its own registry prints its own types.
+ *
+ * The printer only handles the default printer settings: if *print-dup*, *print-meta*, *print-length*, *print-level*,
+ * or *print-namespace-maps* is set, or *print-readably* is not, everything is delegated to pr-on.
+ */
+@SuppressWarnings("rawtypes")
+final class EdnWriter {
+    private static final Var PrintDup = Var.find(Symbol.intern("clojure.core", "*print-dup*"));
+    private static final ThreadLocal<Registry> activeRegistry = new ThreadLocal<>();
+
+    private static final Var PrintMeta = Var.find(Symbol.intern("clojure.core", "*print-meta*"));
+    private static final Var PrintReadably = Var.find(Symbol.intern("clojure.core", "*print-readably*"));
+    private static final Var PrintLength = Var.find(Symbol.intern("clojure.core", "*print-length*"));
+    private static final Var PrintLevel = Var.find(Symbol.intern("clojure.core", "*print-level*"));
+    private static final Var PrintNamespaceMaps = Var.find(Symbol.intern("clojure.core", "*print-namespace-maps*"));
+    private static final Var GlobalHierarchy = Var.find(Symbol.intern("clojure.core", "global-hierarchy"));
+    private static final Keyword Type = Keyword.intern("type");
+
+    private final Writer w;
+    private final Dispatch printers;
+
+    private EdnWriter(Writer w, Dispatch printers) {
+        this.w = w;
+        this.printers = printers;
+    }
+
+    static void write(Object o, Writer w) {
+        write(o, w, Serialization.registry());
+    }
+
+    static void write(Object o, Writer w, Registry registry) {
+        Registry previous = activeRegistry.get();
+        activeRegistry.set(registry);
+        try {
+            if (!hasDefaultBindings()) {
+                PrOn.invoke(o, w);
+                return;
+            }
+            new EdnWriter(w, currentDispatch(registry)).print(o);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (previous == null)
+                activeRegistry.remove();
+            else
+                activeRegistry.set(previous);
+        }
+    }
+
+    /*
+     * The registry of the write in progress on this thread, or the global registry if there is none. Whenever a value
+     * is printed by pr-on instead of by an EdnWriter, the print method for DynamicObjects uses this to print with the
+     * registry that the value is being written with.
+     */
+    static Registry activeRegistry() {
+        Registry registry = activeRegistry.get();
+        return registry != null ? registry : Serialization.registry();
+    }
+
+    private static boolean hasDefaultBindings() {
+        return !RT.booleanCast(PrintDup.deref())
+                && !RT.booleanCast(PrintMeta.deref())
+                && RT.booleanCast(PrintReadably.deref())
+                && (PrintLength == null || !RT.booleanCast(PrintLength.deref()))
+                && (PrintLevel == null || !RT.booleanCast(PrintLevel.deref()))
+                && (PrintNamespaceMaps == null || !RT.booleanCast(PrintNamespaceMaps.deref()));
+    }
+
+    private static Dispatch currentDispatch(Registry registry) {
+        Dispatch current = registry.ednDispatch;
+        if (current == null || !current.isCurrent()) {
+            current = new Dispatch(registry);
+            registry.ednDispatch = current;
+        }
+        return current;
+    }
+
+    private void print(Object o) throws IOException {
+        if (o == null) {
+            printers.nilPrinter.print(this, null);
+            return;
+        }
+        if (o instanceof IMeta && hasTypeTag((IMeta) o)) {
+            // print-method dispatches on the :type metadata instead of the class
+            PrOn.invoke(o, w);
+            return;
+        }
+        printers.printerFor(o.getClass()).print(this, o);
+    }
+
+    private static boolean hasTypeTag(IMeta o) {
+        IPersistentMap meta = o.meta();
+        return meta != null && meta.valAt(Type) instanceof Keyword;
+    }
+
+    private void printSequential(String begin, String sep, String end, Object coll) throws IOException {
+        w.write(begin);
+        for (ISeq seq = RT.seq(coll); seq != null; ) {
+            print(seq.first());
+            seq = seq.next();
+            if (seq != null)
+                w.write(sep);
+        }
+        w.write(end);
+    }
+
+    private void printMap(Object map) throws IOException {
+        w.write("{");
+        for (ISeq seq = RT.seq(map); seq != null; ) {
+            Map.Entry entry = (Map.Entry) seq.first();
+            print(entry.getKey());
+            w.append(' ');
+            print(entry.getValue());
+            seq = seq.next();
+            if (seq != null)
+                w.write(", ");
+        }
+        w.write("}");
+    }
+
+    private void printString(String s) throws IOException {
+        w.append('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String escape = escape(s.charAt(i));
+            if (escape != null) {
+                w.write(s, start, i - start);
+                w.write(escape);
+                start = i + 1;
+            }
+        }
+        w.write(s, start, s.length() - start);
+        w.append('"');
+    }
+
+    // clojure.core/char-escape-string
+    private static String escape(char c) {
+        switch (c) {
+            case '\n': return "\\n";
+            case '\t': return "\\t";
+            case '\r': return "\\r";
+            case '"': return "\\\"";
+            case '\\': return "\\\\";
+            case '\f': return "\\f";
+            case '\b': return "\\b";
+            default: return null;
+        }
+    }
+
+    // clojure.core/char-name-string
+    private void printCharacter(char c) throws IOException {
+        w.append('\\');
+        switch (c) {
+            case '\n': w.write("newline"); break;
+            case '\t': w.write("tab"); break;
+            case ' ': w.write("space"); break;
+            case '\b': w.write("backspace"); break;
+            case '\f': w.write("formfeed"); break;
+            case '\r': w.write("return"); break;
+            default: w.append(c);
+        }
+    }
+
+    private void printFloatingPoint(Object o) throws IOException {
+        double d = ((Number) o).doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d))
+            PrOn.invoke(o, w); // ##Inf and friends are printed differently by different versions of Clojure
+        else
+            w.write(o.toString());
+    }
+
+    private void printDynamicObject(DynamicObject dynamicObject) throws IOException {
+        String tag = printers.registry.tagFor(dynamicObject.getType());
+        if (tag != null) {
+            w.write("#");
+            w.write(tag);
+        }
+        print(dynamicObject.getMap());
+    }
+
+    @FunctionalInterface
+    private interface Printer {
+        void print(EdnWriter writer, Object o) throws IOException;
+    }
+
+    private static final Printer Delegate = (writer, o) -> PrOn.invoke(o, writer.w);
+    private static final Printer ToString = (writer, o) -> writer.w.write(o.toString());
+
+    /*
+     * The printers for one registry and one version of the print-method dispatch table. MultiFn#getMethod is
+     * comparatively slow, so the method for each class is only looked up once. The printers are kept in a ClassValue,
+     * like Registry's write handlers, so that the global registry does not keep printed classes from being unloaded.
+     */
+    static final class Dispatch {
+        private final Registry registry;
+        private final Object methodTable = PrintMethod.getMethodTable();
+        private final Object preferTable = PrintMethod.getPreferTable();
+        private final Object hierarchy = GlobalHierarchy == null ? null : GlobalHierarchy.deref();
+        private final IdentityHashMap<IFn, Printer> builtins = new IdentityHashMap<>();
+        private final ClassValue<Printer> printers = new ClassValue<Printer>() {
+            @Override
+            protected Printer computeValue(Class<?> type) {
+                return resolve(type);
+            }
+        };
+        private final Printer nilPrinter;
+
+        private Dispatch(Registry registry) {
+            this.registry = registry;
+            builtin(Keyword.class, ToString);
+            builtin(Symbol.class, ToString);
+            builtin(Boolean.class, ToString);
+            builtin(Number.class, ToString);
+            builtin(Double.class, (writer, o) -> writer.printFloatingPoint(o));
+            builtin(Float.class, (writer, o) -> writer.printFloatingPoint(o));
+            builtin(BigDecimal.class, (writer, o) -> writer.w.write(o + "M"));
+            builtin(BigInt.class, (writer, o) -> writer.w.write(o + "N"));
+            builtin(String.class, (writer, o) -> writer.printString((String) o));
+            builtin(Character.class, (writer, o) -> writer.printCharacter((Character) o));
+            builtin(ISeq.class, (writer, o) -> writer.printSequential("(", " ", ")", o));
+            builtin(IPersistentVector.class, (writer, o) -> writer.printSequential("[", " ", "]", o));
+            builtin(IPersistentSet.class, (writer, o) -> writer.printSequential("#{", " ", "}", o));
+            builtin(IPersistentMap.class, (writer, o) -> writer.printMap(o));
+            builtin(List.class, (writer, o) -> writer.printSequential("(", " ", ")", o));
+            builtin(RandomAccess.class, (writer, o) -> writer.printSequential("[", " ", "]", o));
+            builtin(Set.class, (writer, o) -> writer.printSequential("#{", " ", "}", o));
+            builtin(Map.class, (writer, o) -> writer.printMap(o));
+
+            IFn nilMethod = PrintMethod.getMethod(null);
+            nilPrinter = isBuiltin(nilMethod) ? (writer, o) -> writer.w.write("nil") : Delegate;
+        }
+
+        private void builtin(Class dispatchValue, Printer printer) {
+            IFn method = (IFn) RT.get(methodTable, dispatchValue);
+            if (method != null && isBuiltin(method))
+                builtins.putIfAbsent(method, printer);
+        }
+
+        // The methods defined in core_print.clj, as opposed to methods installed by the application or other libraries
+        private static boolean isBuiltin(IFn method) {
+            return method != null && method.getClass().getName().startsWith("clojure.core$");
+        }
+
+        private boolean isCurrent() {
+            return methodTable == PrintMethod.getMethodTable()
+                    && preferTable == PrintMethod.getPreferTable()
+                    && (GlobalHierarchy == null || hierarchy == GlobalHierarchy.deref());
+        }
+
+        private Printer printerFor(Class c) {
+            return printers.get(c);
+        }
+
+        private Printer resolve(Class c) {
+            EdnTranslatorAdapter translator = registry.ednTranslatorFor(c);
+            if (translator != null)
+                return (writer, o) -> translator.invoke(o, writer.w);
+            IFn method = PrintMethod.getMethod(c);
+            if (method instanceof EdnSerialization.DynamicObjectPrintMethod && DynamicObject.class.isAssignableFrom(c))
+                return (writer, o) -> writer.printDynamicObject((DynamicObject) o);
+            if (method instanceof EdnTranslatorAdapter)
+                return (writer, o) -> method.invoke(o, writer.w);
+            return builtins.getOrDefault(method, Delegate);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.Cons;
+import clojure.lang.IEditableCollection;
+import clojure.lang.IMapEntry;
+import clojure.lang.IMeta;
+import clojure.lang.IObj;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.Keyword;
+import clojure.lang.MapEntry;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.Util;
+import com.github.rschmitt.dynamicobject.FixedShape;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/*
+ * A persistent map with a fixed set of possible keys, used as the backing map of types annotated with @FixedShape.
+ * The keys are described by a Shape that is computed once per type and shared by every instance; each instance holds
+ * only an array of values in field order, with absent keys marked by a sentinel. Associating a key that is not part of
+ * the shape falls back to an ordinary Clojure map.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class FixedShapeMap extends APersistentMap implements IObj, IEditableCollection {
+    private static final Object Absent = new Object();
+
+    private final Shape shape;
+    private final Object[] values;
+    private final int count;
+    private final IPersistentMap meta;
+
+    private FixedShapeMap(Shape shape, Object[] values, int count, IPersistentMap meta) {
+        this.shape = shape;
+        this.values = values;
+        this.count = count;
+        this.meta = meta;
+    }
+
+    // One adopter, and so one Shape, per type, so that every path that constructs instances agrees on the shape
+    private static final ClassValue<MethodHandle> adopters = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return createAdopter(type);
+        }
+    };
+
+    /*
+     * Returns a handle of type (Map)Map that adapts maps to the fixed shape of the given type, or null if the type is
+     * not annotated with @FixedShape.
+     */
+    static MethodHandle adopterFor(Class type) {
+        if (!type.isAnnotationPresent(FixedShape.class))
+            return null;
+        return adopters.get(type);
+    }
+
+    private static MethodHandle createAdopter(Class type) {
+        Shape shape = new Shape(Reflection.fieldKeys(type).toArray());
+        try {
+            MethodHandle adopt = MethodHandles.lookup().findStatic(FixedShapeMap.class, "adopt", methodType(Map.class, Map.class, Shape.class));
+            return MethodHandles.insertArguments(adopt, 1, shape);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * Returns a FixedShapeMap with the same contents as the given map if every key in the map is part of the shape.
+     * Otherwise, the map is returned unchanged.
+     */
+    private static Map adopt(Map map, Shape shape) {
+        if (!(map instanceof IPersistentMap))
+            return map;
+        if (map instanceof FixedShapeMap && ((FixedShapeMap) map).shape == shape)
+            return map;
+
+        Object[] values = shape.emptyValues();
+        int count = 0;
+        for (Object o : map.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            int idx = shape.indexOf(entry.getKey());
+            if (idx < 0)
+                return map;
+            values[idx] = entry.getValue();
+            count++;
+        }
+        return new FixedShapeMap(shape, values, count, ((IMeta) map).meta());
+    }
+
+    private static final class Shape {
+        private final Object[] keys;
+
+        private Shape(Object[] keys) {
+            this.keys = keys;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++)
+                if (keys[i] == key)
+                    return i;
+            if (key instanceof Keyword)
+                return -1;
+            for (int i = 0; i < keys.length; i++)
+                if (Util.equiv(keys[i], key))
+                    return i;
+            return -1;
+        }
+
+        private Object[] emptyValues() {
+            Object[] values = new Object[keys.length];
+            Arrays.fill(values, Absent);
+            return values;
+        }
+    }
+
+    private IPersistentMap toOrdinaryMap() {
+        ITransientMap ret = PersistentArrayMap.EMPTY.asTransient();
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != Absent)
+                ret = ret.assoc(shape.keys[i], values[i]);
+        IPersistentMap map = ret.persistent();
+        return meta == null ? map : (IPersistentMap) ((IObj) map).withMeta(meta);
+    }
+
+    @Override
+    public IPersistentMap assoc(Object key, Object val) {
+        int idx = shape.indexOf(key);
+        if (idx < 0)
+            return toOrdinaryMap().assoc(key, val);
+        if (values[idx] == val)
+            return this;
+        Object[] newValues = values.clone();
+        newValues[idx] = val;
+        return new FixedShapeMap(shape, newValues, values[idx] == Absent ? count + 1 : count, meta);
+    }
+
+    @Override
+    public IPersistentMap assocEx(Object key, Object val) {
+        if (containsKey(key))
+            throw Util.runtimeException("Key already present");
+        return assoc(key, val);
+    }
+
+    @Override
+    public IPersistentMap without(Object key) {
+        int idx = shape.indexOf(key);
+        if (idx < 0 || values[idx] == Absent)
+            return this;
+        Object[] newValues = values.clone();
+        newValues[idx] = Absent;
+        return new FixedShapeMap(shape, newValues, count - 1, meta);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int idx = shape.indexOf(key);
+        return idx >= 0 && values[idx] != Absent;
+    }
+
+    @Override
+    public IMapEntry entryAt(Object key) {
+        int idx = shape.indexOf(key);
+        if (idx < 0 || values[idx] == Absent)
+            return null;
+        return new MapEntry(shape.keys[idx], values[idx]);
+    }
+
+    @Override
+    public Object valAt(Object key) {
+        return valAt(key, null);
+    }
+
+    @Override
+    public Object valAt(Object key, Object notFound) {
+        int idx = shape.indexOf(key);
+        if (idx < 0)
+            return notFound;
+        Object val = values[idx];
+        return val == Absent ? notFound : val;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public IPersistentCollection empty() {
+        return new FixedShapeMap(shape, shape.emptyValues(), 0, meta);
+    }
+
+    @Override
+    public ISeq seq() {
+        ISeq ret = null;
+        for (int i = values.length - 1; i >= 0; i--)
+            if (values[i] != Absent)
+                ret = new Cons(new MapEntry(shape.keys[i], values[i]), ret);
+        return ret;
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new ShapeIterator(idx -> new MapEntry(shape.keys[idx], values[idx]));
+    }
+
+    // These implement clojure.lang.IMapIterable, which is not available in every supported version of Clojure.
+    public Iterator keyIterator() {
+        return new ShapeIterator(idx -> shape.keys[idx]);
+    }
+
+    public Iterator valIterator() {
+        return new ShapeIterator(idx -> values[idx]);
+    }
+
+    @Override
+    public IPersistentMap meta() {
+        return meta;
+    }
+
+    @Override
+    public IObj withMeta(IPersistentMap meta) {
+        return new FixedShapeMap(shape, values, count, meta);
+    }
+
+    @Override
+    public ITransientCollection asTransient() {
+        return ((IEditableCollection) toOrdinaryMap()).asTransient();
+    }
+
+    private final class ShapeIterator implements Iterator {
+        private final IntFunction<Object> extractor;
+        private int idx = advance(0);
+
+        private ShapeIterator(IntFunction<Object> extractor) {
+            this.extractor = extractor;
+        }
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == Absent)
+                from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx < values.length;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Object ret = extractor.apply(idx);
+            idx = advance(idx + 1);
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import com.github.rschmitt.dynamicobject.FressianDictionary;
+import org.fressian.FressianReader;
+import org.fressian.impl.Codes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/*
+ * A FressianReader that is reused to decode many independent messages, the reading counterpart of FressianEncoder.
+ *
+ * The reader's caches have to be cleared between messages, but FressianReader only does that when it reads a
+ * RESET_CACHES code. So each message is read from a Source that yields that code before the bytes of the message
+ * itself. The reader does not read ahead, so the source can be switched to the next message once an object has been
+ * read.
+ *
+ * Decoders are pooled per thread and registry through borrow() and release(). A decoder, like an encoder, keeps the
+ * encoding of the last dictionary it was used with.
+ */
+final class FressianDecoder {
+    private static final ThreadLocal<FressianDecoder> pool = new ThreadLocal<>();
+
+    private final Registry registry;
+    private final Source source = new Source();
+    private final FressianReader reader;
+    private FressianDictionary primedDictionary;
+    private FressianDictionarySupport.Priming priming;
+    // The dictionary that the reader's caches hold, if they are to be reused for the next message
+    private FressianDictionary loadedDictionary;
+
+    private FressianDecoder(Registry registry) {
+        this.registry = registry;
+        this.reader = FressianSerialization.createFressianReader(source, false, registry);
+    }
+
+    static FressianDecoder borrow(Registry registry) {
+        FressianDecoder decoder = pool.get();
+        if (decoder == null || decoder.registry != registry)
+            return new FressianDecoder(registry);
+        pool.set(null);
+        return decoder;
+    }
+
+    static void release(FressianDecoder decoder) {
+        pool.set(decoder);
+    }
+
+    Object read(byte[] bytes, int offset, int length) {
+        loadedDictionary = null;
+        source.reset(bytes, offset, offset + length);
+        return read();
+    }
+
+    /*
+     * Reads from the remaining bytes of the buffer, without changing its position. The bytes of a heap buffer are read
+     * from its array.
+     */
+    Object read(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            return read(buffer.array(), offset, buffer.remaining());
+        }
+        loadedDictionary = null;
+        source.reset(buffer.duplicate());
+        return read();
+    }
+
+    /*
+     * The reader is primed by reading the dictionary's entries, which the source yields ahead of the message, in place
+     * of the usual RESET_CACHES code. If the reader's caches can be truncated, that is only done once per dictionary:
+     * after each message, the caches are cut back to the entries that the dictionary put there, which leaves the
+     * reader primed for the next message.
+     */
+    Object read(byte[] bytes, int offset, int length, FressianDictionary dictionary) {
+        FressianDictionarySupport.Priming priming = primingFor(dictionary);
+        source.reset(bytes, offset, offset + length);
+        boolean primed = dictionary == loadedDictionary;
+        source.prefix = primed ? null : priming.bytes;
+        try {
+            if (!primed) {
+                loadedDictionary = null;
+                for (int i = 0; i < priming.objectCount; i++)
+                    reader.readObject();
+                if (CacheTruncation.available)
+                    loadedDictionary = dictionary;
+            }
+            Object version = reader.readObject();
+            if (!(version instanceof Long) || (Long) version != dictionary.version())
+                throw new IllegalArgumentException("The message was written with version " + version
+                        + " of the dictionary, but version " + dictionary.version() + " was supplied");
+            return reader.readObject();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            source.reset(null, 0, 0);
+            if (loadedDictionary != null)
+                CacheTruncation.truncate(reader, priming.priorityEntries.size(), priming.structTags.size());
+        }
+    }
+
+    private FressianDictionarySupport.Priming primingFor(FressianDictionary dictionary) {
+        if (dictionary != primedDictionary) {
+            priming = FressianDictionarySupport.prime(dictionary, registry);
+            primedDictionary = dictionary;
+        }
+        return priming;
+    }
+
+    private Object read() {
+        try {
+            return reader.readObject();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            source.reset(null, 0, 0);
+        }
+    }
+
+    /*
+     * FressianReader can clear its caches, but not cut them back to an earlier size, so that is done through the fields
+     * that hold them. Only entries that the reader added itself are ever removed. If the fields cannot be accessed, the
+     * dictionary is simply read again before every message.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class CacheTruncation {
+        private static final Field priorityCache = field("priorityCache");
+        private static final Field structCache = field("structCache");
+        static final boolean available = priorityCache != null && structCache != null;
+
+        private static Field field(String name) {
+            try {
+                Field field = FressianReader.class.getDeclaredField(name);
+                if (!List.class.isAssignableFrom(field.getType()))
+                    return null;
+                field.setAccessible(true);
+                return field;
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        }
+
+        static void truncate(FressianReader reader, int priorityCount, int structCount) {
+            truncate(reader, priorityCache, priorityCount);
+            truncate(reader, structCache, structCount);
+        }
+
+        private static void truncate(FressianReader reader, Field field, int size) {
+            try {
+                List cache = (List) field.get(reader);
+                if (cache != null && cache.size() > size)
+                    cache.subList(size, cache.size()).clear();
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /*
+     * The bytes of the current message, which are either a region of an array or the remaining bytes of a direct
+     * buffer, preceded by a prefix that resets the reader's caches.
+     */
+    private static final class Source extends InputStream {
+        private static final byte[] RESET = {(byte) Codes.RESET_CACHES};
+
+        private byte[] prefix;
+        private int prefixPos;
+        private byte[] bytes;
+        private int pos;
+        private int end;
+        private ByteBuffer buffer;
+
+        void reset(byte[] bytes, int pos, int end) {
+            this.prefix = bytes != null ? RESET : null;
+            this.prefixPos = 0;
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+            this.buffer = null;
+        }
+
+        void reset(ByteBuffer buffer) {
+            reset(null, 0, 0);
+            this.prefix = RESET;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (prefix != null && prefixPos < prefix.length)
+                return prefix[prefixPos++] & 0xFF;
+            if (buffer != null)
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            return pos < end ? bytes[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (prefix != null && prefixPos < prefix.length) {
+                int n = Math.min(len, prefix.length - prefixPos);
+                System.arraycopy(prefix, prefixPos, b, off, n);
+                prefixPos += n;
+                return n;
+            }
+            if (buffer != null) {
+                if (!buffer.hasRemaining())
+                    return -1;
+                int n = Math.min(len, buffer.remaining());
+                buffer.get(b, off, n);
+                return n;
+            }
+            if (pos >= end)
+                return -1;
+            int n = Math.min(len, end - pos);
+            System.arraycopy(bytes, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
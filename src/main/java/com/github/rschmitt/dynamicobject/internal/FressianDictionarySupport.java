@@ -0,0 +1,145 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+import com.github.rschmitt.dynamicobject.FressianDictionary;
+import org.fressian.CachedObject;
+import org.fressian.FressianWriter;
+import org.fressian.Writer;
+import org.fressian.impl.Codes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The parts of FressianDictionary that depend on how FressianWriteHandler writes DynamicObjects: which of the objects
+ * in an instance are written through the priority cache, and can therefore be replaced by references to dictionary
+ * entries. Those are the keys of every tagged instance, the values of its @Cached fields, and, for types with
+ * @PositionalEncoding, the field layout.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class FressianDictionarySupport {
+    private static final ClassValue<Set<Object>> cachedKeys = new ClassValue<Set<Object>>() {
+        @Override
+        protected Set<Object> computeValue(Class<?> type) {
+            return Reflection.cachedKeys((Class) type);
+        }
+    };
+
+    private FressianDictionarySupport() {
+    }
+
+    /*
+     * The entries that every instance of the type can use: its keys, and its layout if it is written positionally.
+     */
+    public static List<Object> entriesFor(Class<? extends DynamicObject> type) {
+        List<Object> entries = new ArrayList<>(Reflection.fieldKeys((Class) type));
+        List<Object> layout = Reflection.positionalLayout((Class) type);
+        if (layout != null)
+            entries.add(layout);
+        return entries;
+    }
+
+    /*
+     * Adds one to the count of every cacheable object in value, which is searched recursively for DynamicObjects.
+     */
+    public static void count(Object value, Map<Object, Long> counts) {
+        if (value instanceof DynamicObject) {
+            DynamicObject instance = (DynamicObject) value;
+            Class type = instance.getType();
+            List<Object> layout = Reflection.positionalLayout(type);
+            if (layout != null)
+                increment(layout, counts);
+            Set<Object> cached = cachedKeys.get(type);
+            for (Map.Entry entry : (Set<Map.Entry>) instance.getMap().entrySet()) {
+                increment(entry.getKey(), counts);
+                if (cached.contains(entry.getKey()))
+                    increment(entry.getValue(), counts);
+                count(entry.getValue(), counts);
+            }
+        } else if (value instanceof Map) {
+            for (Object v : ((Map) value).values())
+                count(v, counts);
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection) value)
+                count(element, counts);
+        }
+    }
+
+    private static void increment(Object o, Map<Object, Long> counts) {
+        if (o != null)
+            counts.merge(o, 1L, Long::sum);
+    }
+
+    /*
+     * A dictionary, encoded for one registry, as a RESET_CACHES code followed by each entry written through the
+     * priority cache. A reader that reads these bytes ends up with the dictionary in its caches, which is how
+     * FressianDecoder primes its reader, since FressianReader has no other way to fill them.
+     *
+     * Writing an entry can add more than the entry itself to the writer's caches: the values inside it that are also
+     * written through the priority cache, and the struct types of tagged values. What was added, in order, is recorded
+     * in priorityEntries and structTags, which FressianEncoder interns into its writer to get the same cache state as
+     * the reader without writing anything.
+     */
+    static final class Priming {
+        final byte[] bytes;
+        final int objectCount;
+        final List<Object> priorityEntries;
+        final List<Object> structTags;
+
+        private Priming(byte[] bytes, int objectCount, List<Object> priorityEntries, List<Object> structTags) {
+            this.bytes = bytes;
+            this.objectCount = objectCount;
+            this.priorityEntries = priorityEntries;
+            this.structTags = structTags;
+        }
+    }
+
+    static Priming prime(FressianDictionary dictionary, Registry registry) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Codes.RESET_CACHES);
+        RecordingWriter writer = new RecordingWriter(out, registry);
+        try {
+            for (Object entry : dictionary.entries())
+                writer.writeObject(entry, true);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return new Priming(out.toByteArray(), dictionary.entries().size(), writer.priorityEntries, writer.structTags);
+    }
+
+    private static final class RecordingWriter extends FressianWriter {
+        private final List<Object> priorityEntries = new ArrayList<>();
+        private final List<Object> structTags = new ArrayList<>();
+
+        RecordingWriter(ByteArrayOutputStream out, Registry registry) {
+            super(out, registry.writeHandlerLookup());
+        }
+
+        @Override
+        public Writer writeAs(String tag, Object o, boolean cache) throws IOException {
+            Object key = CachedObject.unwrap(o);
+            if (key == null || getPriorityCache().get(key) != -1)
+                return super.writeAs(tag, o, cache);
+            // The object is interned before anything it contains, so it goes before whatever that adds
+            int index = priorityEntries.size();
+            super.writeAs(tag, o, cache);
+            if (getPriorityCache().get(key) != -1)
+                priorityEntries.add(index, key);
+            return this;
+        }
+
+        @Override
+        public Writer writeTag(Object tag, int componentCount) throws IOException {
+            boolean known = getStructCache().get(tag) != -1;
+            super.writeTag(tag, componentCount);
+            if (!known && getStructCache().get(tag) != -1)
+                structTags.add(tag);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import com.github.rschmitt.dynamicobject.FressianDictionary;
+import org.fressian.FressianWriter;
+import org.fressian.impl.InterleavedIndexHopMap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * A FressianWriter that is reused to encode many independent messages. Creating a FressianWriter is not free: besides
+ * the writer itself, it allocates an output wrapper, a checksum, and a lookup cache for write handlers that starts out
+ * cold every time. An encoder keeps all of that, and between messages only clears the writer's caches, which is what
+ * makes each message readable on its own. No footer is ever written, so the running checksum is never used.
+ *
+ * The writer writes to a Sink, which is pointed at either the encoder's own growable array or at a caller-supplied
+ * ByteBuffer for each message.
+ *
+ * Encoders are pooled per thread and registry through borrow() and release(). An encoder belongs to the registry it
+ * was created for, since the handler cache inside its writer is only valid for that registry's handlers.
+ */
+final class FressianEncoder {
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MAX_POOLED_SIZE = 1 << 20;
+    private static final ThreadLocal<FressianEncoder> pool = new ThreadLocal<>();
+
+    private final Registry registry;
+    private final Sink sink = new Sink();
+    private final FressianWriter writer;
+    private FressianDictionary primedDictionary;
+    private FressianDictionarySupport.Priming priming;
+
+    private FressianEncoder(Registry registry) {
+        this.registry = registry;
+        this.writer = FressianSerialization.createFressianWriter(sink, registry);
+    }
+
+    static FressianEncoder borrow(Registry registry) {
+        FressianEncoder encoder = pool.get();
+        if (encoder == null || encoder.registry != registry)
+            return new FressianEncoder(registry);
+        pool.set(null);
+        return encoder;
+    }
+
+    static void release(FressianEncoder encoder) {
+        if (encoder.sink.array.length > MAX_POOLED_SIZE)
+            encoder.sink.array = new byte[BUFFER_SIZE];
+        pool.set(encoder);
+    }
+
+    byte[] toByteArray(Object o) {
+        return toByteArray(o, null);
+    }
+
+    /*
+     * With a dictionary, the writer's caches start out the way the decoder's are left by reading the dictionary, and
+     * the message starts with the dictionary's version.
+     */
+    byte[] toByteArray(Object o, FressianDictionary dictionary) {
+        sink.target = null;
+        sink.pos = 0;
+        encode(o, dictionary);
+        return Arrays.copyOf(sink.array, sink.pos);
+    }
+
+    /*
+     * Writes o to the buffer at its position, which is advanced past it, and returns the number of bytes written. If o
+     * does not fit, the position is left unchanged.
+     */
+    int write(Object o, ByteBuffer buffer) {
+        int start = buffer.position();
+        sink.target = buffer;
+        try {
+            encode(o, null);
+        } catch (BufferOverflowException ex) {
+            buffer.position(start);
+            throw ex;
+        } finally {
+            sink.target = null;
+        }
+        return buffer.position() - start;
+    }
+
+    private void encode(Object o, FressianDictionary dictionary) {
+        InterleavedIndexHopMap priorityCache = writer.getPriorityCache();
+        InterleavedIndexHopMap structCache = writer.getStructCache();
+        priorityCache.clear();
+        structCache.clear();
+        try {
+            if (dictionary != null) {
+                FressianDictionarySupport.Priming priming = primingFor(dictionary);
+                for (Object entry : priming.priorityEntries)
+                    priorityCache.intern(entry);
+                for (Object tag : priming.structTags)
+                    structCache.intern(tag);
+                writer.writeInt(dictionary.version());
+            }
+            writer.writeObject(o);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private FressianDictionarySupport.Priming primingFor(FressianDictionary dictionary) {
+        if (dictionary != primedDictionary) {
+            priming = FressianDictionarySupport.prime(dictionary, registry);
+            primedDictionary = dictionary;
+        }
+        return priming;
+    }
+
+    private static final class Sink extends OutputStream {
+        private byte[] array = new byte[BUFFER_SIZE];
+        private int pos;
+        private ByteBuffer target;
+
+        @Override
+        public void write(int b) {
+            if (target != null) {
+                target.put((byte) b);
+                return;
+            }
+            if (pos == array.length)
+                array = Arrays.copyOf(array, array.length * 2);
+            array[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (target != null) {
+                target.put(b, off, len);
+                return;
+            }
+            if (array.length - pos < len)
+                array = Arrays.copyOf(array, Math.max(array.length * 2, pos + len));
+            System.arraycopy(b, off, array, pos, len);
+            pos += len;
+        }
+    }
+}
@@ -1,109 +1,128 @@
 package com.github.rschmitt.dynamicobject.internal;
 
-import com.github.rschmitt.dynamicobject.DynamicObject;
-import com.github.rschmitt.dynamicobject.FressianReadHandler;
-import com.github.rschmitt.dynamicobject.FressianWriteHandler;
+import com.github.rschmitt.dynamicobject.FressianDictionary;
 import org.fressian.FressianReader;
 import org.fressian.FressianWriter;
-import org.fressian.handlers.ReadHandler;
-import org.fressian.handlers.WriteHandler;
-import org.fressian.impl.Handlers;
-import org.fressian.impl.InheritanceLookup;
-import org.fressian.impl.MapLookup;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class FressianSerialization {
-    private static final ConcurrentHashMap<Class, Map<String, WriteHandler>> fressianWriteHandlers = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<Object, ReadHandler> fressianReadHandlers = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<Class<?>, String> binaryTagCache = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<Class<?>, String> binaryTypeCache = new ConcurrentHashMap<>();
-
-    static {
-        fressianWriteHandlers.putAll(ClojureStuff.clojureWriteHandlers);
-        fressianReadHandlers.putAll(ClojureStuff.clojureReadHandlers);
-    }
-
-    public static <T> Stream<T> deserializeFressianStream(InputStream is, Class<T> type) {
-        FressianReader fressianReader = new FressianReader(is, new MapLookup<>(fressianReadHandlers));
+    public static <T> Stream<T> deserializeFressianStream(InputStream is, Class<T> type, Registry registry) {
+        FressianReader fressianReader = new FressianReader(is, registry.readHandlerLookup());
         Iterator<T> iterator = Serialization.deserializeStreamToIterator(() -> (T) fressianReader.readObject(), type);
         Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.IMMUTABLE);
         return StreamSupport.stream(spliterator, false);
     }
 
-    public static FressianReader createFressianReader(InputStream is, boolean validateChecksum) {
-        return new FressianReader(is, new MapLookup<>(fressianReadHandlers), validateChecksum);
+    public static <T> Stream<T> deserializeFressianStream(ReadableByteChannel channel, Class<T> type, Registry registry) {
+        return deserializeFressianStream(new ChannelInputStream(channel), type, registry);
     }
 
-    public static FressianWriter createFressianWriter(OutputStream os) {
-        return new FressianWriter(os, new InheritanceLookup<>(new MapLookup<>(fressianWriteHandlers)));
+    /*
+     * The file is memory-mapped, in consecutive windows if it is too large for a single mapping, and read directly from
+     * the mappings. Fressian has no structure that needs to be kept together, so the windows can simply be
+     * concatenated.
+     */
+    public static <T> Stream<T> deserializeFressianFile(Path file, Class<T> type, Registry registry) {
+        return deserializeFressianFile(file, EdnSpliterator.MAX_WINDOW_SIZE, type, registry);
     }
 
-    public static byte[] toFressianByteArray(Object o) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (FressianWriter fressianWriter = DynamicObject.createFressianWriter(baos)) {
-            fressianWriter.writeObject(o);
+    static <T> Stream<T> deserializeFressianFile(Path file, long windowSize, Class<T> type, Registry registry) {
+        return deserializeFressianStream(new ByteBufferInputStream(map(file, windowSize)), type, registry);
+    }
+
+    private static ByteBuffer[] map(Path file, long windowSize) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] windows = new ByteBuffer[(int) ((size + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                long offset = i * windowSize;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+            }
+            return windows;
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
-        return baos.toByteArray();
     }
 
-    public static <T> T fromFressianByteArray(byte[] bytes) {
-        ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-        FressianReader fressianReader = DynamicObject.createFressianReader(bais, false);
+    public static FressianReader createFressianReader(InputStream is, boolean validateChecksum, Registry registry) {
+        return new FressianReader(is, registry.readHandlerLookup(), validateChecksum);
+    }
+
+    public static FressianWriter createFressianWriter(OutputStream os, Registry registry) {
+        return new FressianWriter(os, registry.writeHandlerLookup());
+    }
+
+    public static byte[] toFressianByteArray(Object o, Registry registry) {
+        FressianEncoder encoder = FressianEncoder.borrow(registry);
         try {
-            return (T) fressianReader.readObject();
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            return encoder.toByteArray(o);
+        } finally {
+            FressianEncoder.release(encoder);
         }
     }
 
-    public static synchronized void registerType(Class type, String tag, ReadHandler readHandler, WriteHandler writeHandler) {
-        String currentTagForType = binaryTypeCache.put(type, tag);
-        if (currentTagForType != null) {
-            // already registered
-            return;
+    public static byte[] toFressianByteArray(Object o, FressianDictionary dictionary, Registry registry) {
+        FressianEncoder encoder = FressianEncoder.borrow(registry);
+        try {
+            return encoder.toByteArray(o, dictionary);
+        } finally {
+            FressianEncoder.release(encoder);
+        }
+    }
+
+    public static int toFressian(Object o, ByteBuffer buffer, Registry registry) {
+        FressianEncoder encoder = FressianEncoder.borrow(registry);
+        try {
+            return encoder.write(o, buffer);
+        } finally {
+            FressianEncoder.release(encoder);
         }
-        Handlers.installHandler(fressianWriteHandlers, type, tag, writeHandler);
-        fressianReadHandlers.putIfAbsent(tag, readHandler);
     }
 
-    static synchronized <T> void deregisterType(Class<T> type) {
-        fressianWriteHandlers.remove(type);
-        String tag = binaryTypeCache.remove(type);
-        if (tag != null) {
-            fressianReadHandlers.remove(tag);
+    public static <T> T fromFressianByteArray(byte[] bytes, Registry registry) {
+        return fromFressian(bytes, 0, bytes.length, registry);
+    }
+
+    public static <T> T fromFressianByteArray(byte[] bytes, FressianDictionary dictionary, Registry registry) {
+        FressianDecoder decoder = FressianDecoder.borrow(registry);
+        try {
+            return (T) decoder.read(bytes, 0, bytes.length, dictionary);
+        } finally {
+            FressianDecoder.release(decoder);
         }
     }
 
-    static synchronized <D extends DynamicObject<D>> void registerTag(Class<D> type, String tag) {
-        String currentTagForType = binaryTagCache.put(type, tag);
-        if (currentTagForType != null) {
-            // already registered
-            return;
+    public static <T> T fromFressian(byte[] bytes, int offset, int length, Registry registry) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + bytes.length);
+        FressianDecoder decoder = FressianDecoder.borrow(registry);
+        try {
+            return (T) decoder.read(bytes, offset, length);
+        } finally {
+            FressianDecoder.release(decoder);
         }
-        Handlers.installHandler(fressianWriteHandlers, type, tag, new FressianWriteHandler(type, tag, Reflection.cachedKeys(type)));
-        fressianReadHandlers.putIfAbsent(tag, new FressianReadHandler(type));
     }
 
-    static synchronized <D extends DynamicObject<D>> void deregisterTag(Class<D> type) {
-        String tag = binaryTagCache.remove(type);
-        fressianWriteHandlers.remove(type);
-        if (tag != null) {
-            fressianReadHandlers.remove(tag);
+    public static <T> T fromFressian(ByteBuffer buffer, Registry registry) {
+        FressianDecoder decoder = FressianDecoder.borrow(registry);
+        try {
+            return (T) decoder.read(buffer);
+        } finally {
+            FressianDecoder.release(decoder);
         }
     }
 }
@@ -3,15 +3,35 @@ package com.github.rschmitt.dynamicobject.internal;
 import com.github.rschmitt.dynamicobject.DynamicObject;
 import com.github.rschmitt.dynamicobject.internal.indyproxy.DynamicProxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.EmptyMap;
+import static java.lang.invoke.MethodType.methodType;
 
 @SuppressWarnings("rawtypes")
 public class Instances {
-    private static final ConcurrentMap<Class, DynamicProxy> proxyCache = new ConcurrentHashMap<>();
+    /*
+     * The proxy constructor for each type is associated with the type itself, rather than held in a global map, so
+     * that a DynamicObject type and its proxy class can be unloaded together with the class loader that defined them.
+     * Lookups are lock-free; generating a proxy class only blocks other threads that need a proxy for the same type.
+     */
+    private static final ClassValue<ProxyConstructor> constructors = new ClassValue<ProxyConstructor>() {
+        @Override
+        protected ProxyConstructor computeValue(Class<?> type) {
+            return new ProxyConstructor(type);
+        }
+    };
+    private static volatile Path proxyCacheDirectory;
+
+    public static void useProxyCache(Path directory) {
+        proxyCacheDirectory = directory;
+    }
 
     public static <D extends DynamicObject<D>> D newInstance(Class<D> type) {
         return wrap(EmptyMap, type);
@@ -23,61 +43,156 @@ public class Instances {
         if (map instanceof DynamicObject)
             return type.cast(map);
 
-        return createIndyProxy(map, type);
+        return construct(constructorFor(type), map);
+    }
+
+    public static <D extends DynamicObject<D>> Function<Map, D> factory(Class<D> type) {
+        return new Factory<>(type);
+    }
+
+    public static <D extends DynamicObject<D>> D build(Class<D> type, Consumer<D> builder) {
+        MethodHandle constructor = constructorFor(type);
+        BatchMap batchMap = new BatchMap(EmptyMap);
+        builder.accept(construct(constructor, batchMap));
+        return construct(constructor, batchMap.toPersistent());
+    }
+
+    private static MethodHandle constructorFor(Class type) {
+        return constructors.get(type).get();
     }
 
-    private static <D extends DynamicObject<D>> D createIndyProxy(Map map, Class<D> type) {
-        ensureInitialized(type);
+    @SuppressWarnings("unchecked")
+    private static <D> D construct(MethodHandle constructor, Map map) {
         try {
-            DynamicProxy dynamicProxy;
-            // Use ConcurrentHashMap#computeIfAbsent only when key is not present to avoid locking: JDK-8161372
-            if (proxyCache.containsKey(type)) {
-                dynamicProxy = proxyCache.get(type);
-            } else {
-                dynamicProxy = proxyCache.computeIfAbsent(type, Instances::createProxy);
-            }
-            Object proxy = dynamicProxy
-                    .constructor()
-                    .invoke(map, type);
-            return type.cast(proxy);
+            return (D) (Object) constructor.invokeExact(map);
         } catch (Throwable t) {
             throw new RuntimeException(t);
         }
     }
 
-    // This is to avoid hitting JDK-8062841 in the case where 'type' has a static field of type D
-    // that has not yet been initialized.
-    private static <D extends DynamicObject<D>> void ensureInitialized(Class<D> c) {
-        if (!proxyCache.containsKey(c))
-            load(c);
+    private static MethodHandle createConstructor(Class type) {
+        DynamicProxy proxy = createProxy(type);
+        Serialization.registry().seedProxy(proxy.proxyClass(), type);
+        MethodHandle constructor = proxy.constructor();
+        constructor = MethodHandles.insertArguments(constructor, 1, type);
+        MethodHandle adopter = FixedShapeMap.adopterFor(type);
+        if (adopter != null)
+            constructor = MethodHandles.filterArguments(constructor, 0, adopter);
+        return constructor.asType(methodType(Object.class, Map.class));
+    }
+
+    private static final class Factory<D extends DynamicObject<D>> implements Function<Map, D> {
+        private final Class<D> type;
+        // Resolved on first use, so that creating a factory does not generate the proxy class. Racy initialization is
+        // benign, since every thread will resolve the same handle.
+        private MethodHandle constructor;
+
+        private Factory(Class<D> type) {
+            this.type = type;
+        }
+
+        @Override
+        public D apply(Map map) {
+            if (map == null)
+                throw new NullPointerException("A null reference cannot be used as a DynamicObject");
+            if (map instanceof DynamicObject)
+                return type.cast(map);
+
+            MethodHandle constructor = this.constructor;
+            if (constructor == null)
+                this.constructor = constructor = constructorFor(type);
+            return construct(constructor, map);
+        }
     }
 
+    private static final class ProxyConstructor {
+        private final Class type;
+        private volatile MethodHandle constructor;
+
+        private ProxyConstructor(Class type) {
+            this.type = type;
+        }
+
+        /*
+         * Returns a handle of type (Map)Object that invokes the proxy constructor for the type directly, after adapting
+         * the map to the type's fixed shape, if it has one. ClassValue#computeValue may run more than once for the same
+         * type, so generation is guarded here instead; defining the same proxy class twice would fail for
+         * package-private types.
+         *
+         * The type is initialized before the lock is taken and before the constructor is checked again, since its
+         * static initializer may itself create instances, and with them the constructor.
+         */
+        private MethodHandle get() {
+            MethodHandle constructor = this.constructor;
+            if (constructor != null)
+                return constructor;
+            load(type);
+            synchronized (this) {
+                if (this.constructor == null)
+                    this.constructor = createConstructor(type);
+                return this.constructor;
+            }
+        }
+    }
+
+    // This is to avoid hitting JDK-8062841 in the case where 'type' has a static field of type D
+    // that has not yet been initialized.
     private static void load(Class<?> c) {
         try {
-            Class.forName(c.getName());
+            Class.forName(c.getName(), true, c.getClassLoader());
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private static DynamicProxy createProxy(Class dynamicObjectType) {
+    public static DynamicProxy.Builder proxyBuilder(Class dynamicObjectType) throws NoSuchMethodException {
         String[] slices = dynamicObjectType.getName().split("\\.");
         String name = slices[slices.length - 1] + "Impl";
+        @SuppressWarnings("unchecked")
+        Map<Method, Integer> getterSlots = Reflection.getterSlots(dynamicObjectType);
+        DynamicProxy.Builder builder = DynamicProxy.builder()
+                .withInterfaces(dynamicObjectType, CustomValidationHook.class)
+                .withSuperclass(DynamicObjectInstance.class)
+                .withInvocationHandler(new InvokeDynamicInvocationHandler(dynamicObjectType, getterSlots))
+                .withConstructor(Map.class, Class.class)
+                .withPackageName(dynamicObjectType.getPackage().getName())
+                .withClassName(name);
         try {
-            DynamicProxy.Builder builder = DynamicProxy.builder()
-                    .withInterfaces(dynamicObjectType, CustomValidationHook.class)
-                    .withSuperclass(DynamicObjectInstance.class)
-                    .withInvocationHandler(new InvokeDynamicInvocationHandler(dynamicObjectType))
-                    .withConstructor(Map.class, Class.class)
-                    .withPackageName(dynamicObjectType.getPackage().getName())
-                    .withClassName(name);
-            try {
-                Class<?> iMapIterable = Class.forName("clojure.lang.IMapIterable");
-                builder = builder.withInterfaces(iMapIterable);
-            } catch (ClassNotFoundException ignore) {}
+            Class<?> iMapIterable = Class.forName("clojure.lang.IMapIterable");
+            builder = builder.withInterfaces(iMapIterable);
+        } catch (ClassNotFoundException ignore) {}
+        return builder;
+    }
+
+    private static DynamicProxy createProxy(Class dynamicObjectType) {
+        try {
+            DynamicProxy.Builder builder = proxyBuilder(dynamicObjectType);
+            Class<?> pregenerated = findPregeneratedProxy(dynamicObjectType, builder);
+            if (pregenerated != null)
+                return builder.build(pregenerated);
+            Path cacheDirectory = proxyCacheDirectory;
+            if (cacheDirectory != null)
+                builder.withCacheDirectory(cacheDirectory);
             return builder.build();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    /*
+     * Proxy classes can be generated ahead of time (see the dynamic-object-pregen artifact) and placed on the classpath
+     * alongside the types they implement. Such a class is only used if it really is a proxy for the type, since the
+     * name could also belong to an unrelated user class, and only if it is not stale: a proxy that was generated before
+     * the type (or DynamicObject itself) last changed is ignored, and a fresh one is generated instead.
+     */
+    private static Class<?> findPregeneratedProxy(Class<?> dynamicObjectType, DynamicProxy.Builder builder) {
+        try {
+            Class<?> proxyClass = Class.forName(builder.proxyClassName(), false, dynamicObjectType.getClassLoader());
+            if (dynamicObjectType.isAssignableFrom(proxyClass)
+                    && DynamicObjectInstance.class.isAssignableFrom(proxyClass)
+                    && builder.matches(proxyClass))
+                return proxyClass;
+        } catch (ClassNotFoundException | LinkageError ignore) {}
+        return null;
+    }
 }
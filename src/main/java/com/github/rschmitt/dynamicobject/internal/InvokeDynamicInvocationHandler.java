@@ -9,16 +9,19 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.function.Function;
 
 import static java.lang.invoke.MethodType.methodType;
 
 @SuppressWarnings("rawtypes")
 public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler {
     private final Class dynamicObjectType;
+    private final Map<Method, Integer> getterSlots;
 
-    public InvokeDynamicInvocationHandler(Class dynamicObjectType) {
+    public InvokeDynamicInvocationHandler(Class dynamicObjectType, Map<Method, Integer> getterSlots) {
         this.dynamicObjectType = dynamicObjectType;
+        this.getterSlots = getterSlots;
     }
 
     @Override
@@ -29,14 +32,15 @@ public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler
             MethodType methodType,
             MethodHandle superMethod
     ) throws Throwable {
-        Class proxyType = methodType.parameterArray()[0];
+        Class proxyType = lookup.lookupClass();
         MethodHandle mh;
         if (superMethod != null && !"validate".equals(methodName)) {
             mh = superMethod.asType(methodType);
             return new ConstantCallSite(mh);
         }
+        Preloading.recordLink(dynamicObjectType, methodName, methodType);
         if ("validate".equals(methodName)) {
-            mh = Validation.buildValidatorFor(dynamicObjectType).asType(methodType);
+            mh = Validation.buildValidatorFor(dynamicObjectType, getterSlots).asType(methodType);
         } else if ("$$customValidate".equals(methodName)) {
             try {
                 mh = lookup.findSpecial(dynamicObjectType, "validate", methodType(dynamicObjectType), proxyType);
@@ -44,6 +48,14 @@ public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler
                 mh = lookup.findSpecial(DynamicObjectInstance.class, "$$noop", methodType(Object.class, new Class[]{}), proxyType);
             }
             mh = mh.asType(methodType);
+        } else if ("$$newInstance".equals(methodName)) {
+            mh = lookup.findConstructor(proxyType, methodType(void.class, Map.class, Class.class));
+            mh = MethodHandles.insertArguments(mh, 1, dynamicObjectType);
+            MethodHandle adopter = FixedShapeMap.adopterFor(dynamicObjectType);
+            if (adopter != null)
+                mh = MethodHandles.filterArguments(mh, 0, adopter);
+            mh = MethodHandles.dropArguments(mh, 0, proxyType);
+            mh = mh.asType(methodType);
         } else if ("afterDeserialization".equals(methodName)) {
             mh = lookup.findSpecial(DynamicObjectInstance.class, "$$noop", methodType(Object.class, new Class[]{}), proxyType).asType(methodType);
         } else {
@@ -51,10 +63,16 @@ public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler
 
             if (isBuilderMethod(method)) {
                 Object key = Reflection.getKeyForBuilder(method);
+                Class<?> primitiveType = primitiveBuilderType(method.getParameterTypes()[0]);
                 if (Reflection.isMetadataBuilder(method)) {
                     mh = lookup.findSpecial(DynamicObjectInstance.class, "assocMeta", methodType(DynamicObject.class, Object.class, Object.class), proxyType);
                     mh = MethodHandles.insertArguments(mh, 1, key);
                     mh = mh.asType(methodType);
+                } else if (primitiveType != null) {
+                    String name = "assoc" + capitalize(primitiveType.getName());
+                    mh = lookup.findSpecial(DynamicObjectInstance.class, name, methodType(DynamicObject.class, Object.class, primitiveType), proxyType);
+                    mh = MethodHandles.insertArguments(mh, 1, key);
+                    mh = mh.asType(methodType);
                 } else {
                     mh = lookup.findSpecial(DynamicObjectInstance.class, "convertAndAssoc", methodType(DynamicObject.class, Object.class, Object.class), proxyType);
                     mh = MethodHandles.insertArguments(mh, 1, key);
@@ -66,11 +84,19 @@ public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler
                     mh = lookup.findSpecial(DynamicObjectInstance.class, "getMetadataFor", methodType(Object.class, Object.class), proxyType);
                     mh = MethodHandles.insertArguments(mh, 1, key);
                     mh = mh.asType(methodType);
+                } else if (method.getReturnType().isPrimitive()) {
+                    Class<?> returnType = method.getReturnType();
+                    boolean isRequired = Reflection.isRequired(method);
+                    String name = "get" + capitalize(returnType.getName());
+                    mh = lookup.findSpecial(DynamicObjectInstance.class, name, methodType(returnType, Object.class, boolean.class), proxyType);
+                    mh = MethodHandles.insertArguments(mh, 1, key, isRequired);
+                    mh = mh.asType(methodType);
                 } else {
                     boolean isRequired = Reflection.isRequired(method);
-                    Type genericReturnType = method.getGenericReturnType();
-                    mh = lookup.findSpecial(DynamicObjectInstance.class, "invokeGetter", methodType(Object.class, Object.class, boolean.class, Type.class), proxyType);
-                    mh = MethodHandles.insertArguments(mh, 1, key, isRequired, genericReturnType);
+                    Function<Object, Object> converter = Conversions.converterFor(method);
+                    int slot = getterSlots.getOrDefault(method, -1);
+                    mh = lookup.findSpecial(DynamicObjectInstance.class, "invokeGetter", methodType(Object.class, int.class, int.class, Object.class, boolean.class, Function.class), proxyType);
+                    mh = MethodHandles.insertArguments(mh, 1, slot, getterSlots.size(), key, isRequired, converter);
                     mh = mh.asType(methodType);
                 }
             }
@@ -78,6 +104,19 @@ public class InvokeDynamicInvocationHandler implements DynamicInvocationHandler
         return new ConstantCallSite(mh);
     }
 
+    // Integral types are widened to long, which is how they are stored; char is left to the generic path.
+    private static Class<?> primitiveBuilderType(Class<?> parameterType) {
+        if (parameterType == long.class || parameterType == int.class || parameterType == short.class || parameterType == byte.class)
+            return long.class;
+        if (parameterType == double.class || parameterType == float.class || parameterType == boolean.class)
+            return parameterType;
+        return null;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
     private boolean isBuilderMethod(Method method) {
         return method.getReturnType().equals(dynamicObjectType) && method.getParameterCount() == 1;
     }
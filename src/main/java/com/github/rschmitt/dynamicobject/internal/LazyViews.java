@@ -0,0 +1,209 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/*
+ * Immutable views over persistent collections, used by getters annotated with @Lazy. Each element is converted the
+ * first time it is accessed, and the result is memoized by its position in the underlying collection, or for map values
+ * by key. Since persistent collections are immutable, iteration order is stable, so the same memo can be shared by
+ * every iterator and by multiple threads.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class LazyViews {
+    private static final Object Null = new Object();
+
+    static Object view(
+            Object obj,
+            Function<Object, Object> elementConverter,
+            Function<Object, Object> keyConverter,
+            Function<Object, Object> valueConverter
+    ) {
+        if (obj instanceof List)
+            return new LazyList((List) obj, elementConverter);
+        else if (obj instanceof Set)
+            return new LazySet((Set) obj, elementConverter);
+        else if (obj instanceof Map)
+            return new LazyMap((Map) obj, keyConverter, valueConverter);
+        return obj;
+    }
+
+    private static final class Memo {
+        private final AtomicReferenceArray values;
+        private final Function<Object, Object> converter;
+
+        private Memo(int size, Function<Object, Object> converter) {
+            this.values = new AtomicReferenceArray(size);
+            this.converter = converter;
+        }
+
+        private Object get(int idx, Object raw) {
+            Object cachedValue = values.get(idx);
+            if (cachedValue == Null) return null;
+            if (cachedValue != null) return cachedValue;
+            Object value = converter.apply(raw);
+            values.lazySet(idx, value == null ? Null : value);
+            return value;
+        }
+    }
+
+    private static final class MemoizingIterator implements Iterator {
+        private final Iterator backing;
+        private final Memo memo;
+        private int idx = 0;
+
+        private MemoizingIterator(Iterator backing, Memo memo) {
+            this.backing = backing;
+            this.memo = memo;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return backing.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            Object raw = backing.next();
+            return memo.get(idx++, raw);
+        }
+    }
+
+    private static final class LazyList extends AbstractList {
+        private final List backing;
+        private final Memo memo;
+
+        private LazyList(List backing, Function<Object, Object> converter) {
+            this.backing = backing;
+            this.memo = new Memo(backing.size(), converter);
+        }
+
+        @Override
+        public Object get(int index) {
+            Object raw = backing.get(index);
+            return memo.get(index, raw);
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new MemoizingIterator(backing.iterator(), memo);
+        }
+    }
+
+    private static final class LazySet extends AbstractSet {
+        private final Set backing;
+        private final Memo memo;
+
+        private LazySet(Set backing, Function<Object, Object> converter) {
+            this.backing = backing;
+            this.memo = new Memo(backing.size(), converter);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return backing.contains(Conversions.javaToClojure(o));
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new MemoizingIterator(backing.iterator(), memo);
+        }
+    }
+
+    /*
+     * Map values are memoized by key rather than by position, so that lookups with get, which cannot know the position
+     * of a key, share the memo with iteration.
+     */
+    private static final class LazyMap extends AbstractMap {
+        private static final Object NullKey = new Object();
+
+        private final Map backing;
+        private final Function<Object, Object> valueConverter;
+        private final Memo keys;
+        private final ConcurrentHashMap<Object, Object> values;
+
+        private LazyMap(Map backing, Function<Object, Object> keyConverter, Function<Object, Object> valueConverter) {
+            this.backing = backing;
+            this.valueConverter = valueConverter;
+            this.keys = new Memo(backing.size(), keyConverter);
+            this.values = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public Object get(Object key) {
+            Object rawKey = Conversions.javaToClojure(key);
+            Object raw = backing.get(rawKey);
+            if (raw == null && !backing.containsKey(rawKey))
+                return valueConverter.apply(null);
+            return value(rawKey, raw);
+        }
+
+        private Object value(Object rawKey, Object raw) {
+            Object memoKey = rawKey == null ? NullKey : rawKey;
+            Object cachedValue = values.get(memoKey);
+            if (cachedValue == Null) return null;
+            if (cachedValue != null) return cachedValue;
+            Object value = valueConverter.apply(raw);
+            values.put(memoKey, value == null ? Null : value);
+            return value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return backing.containsKey(Conversions.javaToClojure(key));
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public Set<Entry> entrySet() {
+            return new AbstractSet<Entry>() {
+                @Override
+                public Iterator<Entry> iterator() {
+                    Iterator<Entry> entries = backing.entrySet().iterator();
+                    return new Iterator<Entry>() {
+                        private int idx = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry next() {
+                            Entry entry = entries.next();
+                            int i = idx++;
+                            return new SimpleImmutableEntry(keys.get(i, entry.getKey()), value(entry.getKey(), entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return backing.size();
+                }
+            };
+        }
+    }
+}
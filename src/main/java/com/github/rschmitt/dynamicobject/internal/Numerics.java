@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.Bigint;
 import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.Biginteger;
@@ -54,12 +55,32 @@ public class Numerics {
         return val;
     }
 
+    /*
+     * Resolve the downconversion performed by maybeDownconvert ahead of time, for use by precompiled getters.
+     */
+    static Function<Object, Object> downconverterFor(Class<?> type) {
+        if (type.equals(int.class) || type.equals(Integer.class)) return val -> val == null ? null : ((Long) val).intValue();
+        if (type.equals(float.class) || type.equals(Float.class)) return val -> val == null ? null : ((Double) val).floatValue();
+        if (type.equals(short.class) || type.equals(Short.class)) return val -> val == null ? null : ((Long) val).shortValue();
+        if (type.equals(byte.class) || type.equals(Byte.class)) return val -> val == null ? null : ((Long) val).byteValue();
+        if (type.equals(BigInt)) return val -> val == null ? null : Biginteger.invoke(val);
+        return Function.identity();
+    }
+
     static Object maybeUpconvert(Object val) {
-        if (val instanceof Float) return Double.parseDouble(String.valueOf(val));
+        if (val instanceof Float) return upconvert((float) val);
         else if (val instanceof Short) return (long) ((short) val);
         else if (val instanceof Byte) return (long) ((byte) val);
         else if (val instanceof Integer) return (long) ((int) val);
         else if (val instanceof BigInteger) return Bigint.invoke(val);
         return val;
     }
+
+    /*
+     * Floats are converted by way of their decimal representation, so that e.g. 3.14f is stored as 3.14 rather than
+     * as 3.140000104904175.
+     */
+    static double upconvert(float val) {
+        return Double.parseDouble(Float.toString(val));
+    }
 }
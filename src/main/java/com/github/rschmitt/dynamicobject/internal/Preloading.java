@@ -0,0 +1,170 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/*
+ * Ahead-of-time linking of DynamicObject types. Each proxy method is linked by InvokeDynamicInvocationHandler the
+ * first time it is invoked, which involves reflection, annotation scanning, and method handle construction. Preloading
+ * a type generates its proxy and then invokes each getter, builder, and the validator once on a blank instance, which
+ * links the real call sites without running any user-defined code.
+ *
+ * Call site linking can also be recorded to a file; preloading from that file links exactly the methods that were
+ * used during the recorded run.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class Preloading {
+    private static final Set<String> recorded = ConcurrentHashMap.newKeySet();
+    private static volatile BufferedWriter recorder;
+
+    public static void preload(Class<?>... types) {
+        for (Class<?> type : types)
+            preload(type, method -> true);
+    }
+
+    public static void preload(ForkJoinPool pool, Class<?>... types) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Class<?> type : types)
+            tasks.add(pool.submit(() -> preload(type, method -> true)));
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    public static void preload(Path usageFile) {
+        Map<String, Set<String>> methodsByType = new LinkedHashMap<>();
+        try {
+            for (String line : Files.readAllLines(usageFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length == 2)
+                    methodsByType.computeIfAbsent(fields[0], k -> new LinkedHashSet<>()).add(fields[1]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        methodsByType.forEach((typeName, methods) -> {
+            Class<?> type;
+            try {
+                type = Class.forName(typeName, false, loader);
+            } catch (ClassNotFoundException e) {
+                return; // The recording may be older than the code that is now running.
+            }
+            preload(type, method -> methods.contains(signature(method.getName(), methodType(method))));
+        });
+    }
+
+    public static synchronized Closeable recordUsage(Path usageFile) {
+        try {
+            stopRecording();
+            BufferedWriter writer = Files.newBufferedWriter(usageFile, StandardCharsets.UTF_8);
+            recorder = writer;
+            return () -> {
+                synchronized (Preloading.class) {
+                    if (recorder == writer)
+                        stopRecording();
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static synchronized void stopRecording() throws IOException {
+        if (recorder != null)
+            recorder.close();
+        recorder = null;
+        recorded.clear();
+    }
+
+    static void recordLink(Class type, String methodName, MethodType methodType) {
+        if (recorder == null)
+            return;
+        String line = type.getName() + " " + signature(methodName, methodType.dropParameterTypes(0, 1));
+        if (recorded.add(line))
+            append(line);
+    }
+
+    private static synchronized void append(String line) {
+        if (recorder == null)
+            return;
+        try {
+            recorder.write(line);
+            recorder.newLine();
+            recorder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void preload(Class<?> type, Predicate<Method> filter) {
+        if (!type.isInterface() || !DynamicObject.class.isAssignableFrom(type))
+            throw new IllegalArgumentException(type + " is not a DynamicObject type");
+
+        Object instance = Instances.newInstance((Class) type);
+        for (Method method : type.getMethods()) {
+            if (isLinkable(type, method) && filter.test(method))
+                link(instance, method);
+        }
+    }
+
+    /*
+     * Getters, builders, and validate() are implemented entirely by InvokeDynamicInvocationHandler, so invoking them on
+     * a blank instance has no side effects. A custom validate() implementation is user code, so it is left alone.
+     */
+    private static boolean isLinkable(Class<?> type, Method method) {
+        if (method.isDefault() || Modifier.isStatic(method.getModifiers()))
+            return false;
+        if (method.getName().equals("validate") && method.getParameterCount() == 0)
+            return true;
+        if (method.getDeclaringClass() == DynamicObject.class)
+            return false;
+        if (method.getParameterCount() == 0)
+            return method.getReturnType() != void.class;
+        return method.getParameterCount() == 1 && method.getReturnType() == type;
+    }
+
+    private static void link(Object instance, Method method) {
+        Object[] args = new Object[method.getParameterCount()];
+        for (int i = 0; i < args.length; i++) {
+            Class<?> parameterType = method.getParameterTypes()[i];
+            if (parameterType.isPrimitive())
+                args[i] = Array.get(Array.newInstance(parameterType, 1), 0);
+        }
+        try {
+            method.setAccessible(true);
+            method.invoke(instance, args);
+        } catch (ReflectiveOperationException | RuntimeException ignore) {
+            // The call site is linked before the method runs, so e.g. a missing required field does not matter here.
+        }
+    }
+
+    private static MethodType methodType(Method method) {
+        return MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+    }
+
+    private static String signature(String methodName, MethodType methodType) {
+        return methodName + methodType.toMethodDescriptorString();
+    }
+}
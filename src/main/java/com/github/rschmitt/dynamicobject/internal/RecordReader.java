@@ -4,12 +4,13 @@ import clojure.lang.AFn;
 import com.github.rschmitt.dynamicobject.DynamicObject;
 
 import java.util.Map;
+import java.util.function.Function;
 
 public final class RecordReader<D extends DynamicObject<D>> extends AFn {
-    private final Class<D> type;
+    private final Function<Map, D> factory;
 
     RecordReader(Class<D> type) {
-        this.type = type;
+        this.factory = Instances.factory(type);
     }
 
     /**
@@ -18,6 +19,6 @@ public final class RecordReader<D extends DynamicObject<D>> extends AFn {
     @Override
     @SuppressWarnings("deprecation")
     public Object invoke(Object map) {
-        return DynamicObject.wrap((Map) map, type).afterDeserialization();
+        return factory.apply((Map) map).afterDeserialization();
     }
 }
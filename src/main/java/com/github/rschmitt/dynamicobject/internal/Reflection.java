@@ -3,7 +3,9 @@ package com.github.rschmitt.dynamicobject.internal;
 import com.github.rschmitt.dynamicobject.Cached;
 import com.github.rschmitt.dynamicobject.DynamicObject;
 import com.github.rschmitt.dynamicobject.Key;
+import com.github.rschmitt.dynamicobject.Lazy;
 import com.github.rschmitt.dynamicobject.Meta;
+import com.github.rschmitt.dynamicobject.PositionalEncoding;
 import com.github.rschmitt.dynamicobject.Required;
 
 import java.lang.annotation.Annotation;
@@ -11,10 +13,13 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -60,6 +65,44 @@ class Reflection {
         return ret;
     }
 
+    /*
+     * Assign every getter a fixed ordinal, which is used as an index into the per-instance value cache. The getters
+     * returned by fieldGetters come first, in the same order; getters inherited from other interfaces follow.
+     */
+    static <D extends DynamicObject<D>> Map<Method, Integer> getterSlots(Class<D> type) {
+        Map<Method, Integer> ret = new LinkedHashMap<>();
+        for (Method method : fieldGetters(type))
+            ret.put(method, ret.size());
+        for (Method method : type.getMethods())
+            if (isGetter(method) && !method.getDeclaringClass().isAssignableFrom(DynamicObject.class))
+                ret.putIfAbsent(method, ret.size());
+        return ret;
+    }
+
+    /*
+     * The distinct keys of the type's getters, in slot order.
+     */
+    static <D extends DynamicObject<D>> List<Object> fieldKeys(Class<D> type) {
+        List<Object> keys = new ArrayList<>();
+        for (Method getter : getterSlots(type).keySet()) {
+            Object key = getKeyForGetter(getter);
+            if (!keys.contains(key))
+                keys.add(key);
+        }
+        return keys;
+    }
+
+    /*
+     * The field layout of a type with @PositionalEncoding, which is at most the first 64 of its keys, or null if the
+     * type does not have the annotation.
+     */
+    static <D extends DynamicObject<D>> List<Object> positionalLayout(Class<D> type) {
+        if (!type.isAnnotationPresent(PositionalEncoding.class))
+            return null;
+        List<Object> keys = fieldKeys(type);
+        return new ArrayList<>(keys.subList(0, Math.min(64, keys.size())));
+    }
+
     private static boolean isBuilder(Method method) {
         return method.getParameterCount() == 1 && method.getDeclaringClass().isAssignableFrom(method.getReturnType());
     }
@@ -82,6 +125,10 @@ class Reflection {
         return hasAnnotation(getter, Required.class);
     }
 
+    static boolean isLazy(Method getter) {
+        return hasAnnotation(getter, Lazy.class);
+    }
+
     private static boolean hasAnnotation(Method method, Class<? extends Annotation> ann) {
         List<Annotation> annotations = Arrays.asList(method.getAnnotations());
         for (Annotation annotation : annotations)
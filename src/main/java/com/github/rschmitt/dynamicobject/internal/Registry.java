@@ -0,0 +1,269 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import clojure.lang.AFn;
+import clojure.lang.IPersistentMap;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.Symbol;
+import com.github.rschmitt.dynamicobject.DynamicObject;
+import com.github.rschmitt.dynamicobject.EdnTranslator;
+import com.github.rschmitt.dynamicobject.FressianReadHandler;
+import com.github.rschmitt.dynamicobject.FressianWriteHandler;
+import com.github.rschmitt.dynamicobject.Unknown;
+import org.fressian.handlers.ILookup;
+import org.fressian.handlers.ReadHandler;
+import org.fressian.handlers.WriteHandler;
+import org.fressian.impl.ChainedLookup;
+import org.fressian.impl.InheritanceLookup;
+import org.fressian.impl.MapLookup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/*
+ * An immutable set of serialization registrations: reader tags for DynamicObject types, EdnTranslators, Fressian
+ * handlers, and the default reader. Registering something produces a new Registry, so a registry can be shared between
+ * threads without any locking, and the tables that are derived from it (the Edn reader tags and the Fressian handler
+ * lookups) are built once, when the registry is created, instead of on every call.
+ *
+ * The registrations made through the static methods on DynamicObject are kept in the global registry in
+ * Serialization, which is replaced whenever they change.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class Registry {
+    public static final Registry EMPTY = new Registry(PersistentHashMap.EMPTY, Collections.emptyMap(),
+            Collections.emptyMap(), wrapReaderFunction(Unknown::new), Collections.emptyMap(), Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap());
+
+    private static final Map<String, WriteHandler> NO_HANDLER = Collections.unmodifiableMap(new HashMap<>());
+
+    // Edn
+    private final IPersistentMap ednReaders;
+    private final Map<Class<?>, EdnTranslatorAdapter<?>> ednTranslators;
+    private final Map<Class<?>, String> recordTags;
+    private final AFn defaultReader;
+
+    // Fressian
+    private final Map<Class, Map<String, WriteHandler>> writeHandlers;
+    private final Map<Object, ReadHandler> readHandlers;
+    private final Map<Class<?>, String> binaryTypes;
+    private final Map<Class<?>, String> binaryTags;
+    private final ILookup<Object, ReadHandler> readHandlerLookup;
+    private final ClassValue<Map<String, WriteHandler>> resolvedWriteHandlers;
+    private final ILookup<Class, Map<String, WriteHandler>> writeHandlerLookup;
+
+    // The printers for this registry, which are created by EdnWriter as they are needed
+    volatile EdnWriter.Dispatch ednDispatch;
+
+    private Registry(IPersistentMap ednReaders,
+                     Map<Class<?>, EdnTranslatorAdapter<?>> ednTranslators,
+                     Map<Class<?>, String> recordTags,
+                     AFn defaultReader,
+                     Map<Class, Map<String, WriteHandler>> writeHandlers,
+                     Map<Object, ReadHandler> readHandlers,
+                     Map<Class<?>, String> binaryTypes,
+                     Map<Class<?>, String> binaryTags) {
+        this.ednReaders = ednReaders;
+        this.ednTranslators = ednTranslators;
+        this.recordTags = recordTags;
+        this.defaultReader = defaultReader;
+        this.writeHandlers = writeHandlers;
+        this.readHandlers = readHandlers;
+        this.binaryTypes = binaryTypes;
+        this.binaryTags = binaryTags;
+
+        /*
+         * The handlers for Clojure's own types come from clojure.data.fressian, which is only loaded once a Fressian
+         * reader or writer is actually created. Registered handlers take precedence over them.
+         */
+        this.readHandlerLookup = new ChainedLookup<>(
+                new MapLookup<>(readHandlers),
+                key -> (ReadHandler) ClojureStuff.clojureReadHandlers().get(key));
+        ILookup<Class, Map<String, WriteHandler>> inheritanceLookup = new InheritanceLookup<>(new ChainedLookup<>(
+                new MapLookup<>(writeHandlers),
+                key -> (Map<String, WriteHandler>) ClojureStuff.clojureWriteHandlers().get(key)));
+
+        /*
+         * InheritanceLookup walks the class hierarchy of every class that is not an exact key, which includes every
+         * DynamicObject proxy class, since tagged types are registered under their interface. So the result is
+         * memoized per class. A registry is never modified, so registering or deregistering a type, which creates a
+         * new registry, also starts with a new cache.
+         *
+         * A proxy class implements exactly one DynamicObject type, so its handler is resolved from that type directly.
+         */
+        this.resolvedWriteHandlers = new ClassValue<Map<String, WriteHandler>>() {
+            @Override
+            protected Map<String, WriteHandler> computeValue(Class<?> type) {
+                Map<String, WriteHandler> handler = writeHandlers.get(type);
+                if (handler == null && DynamicObjectInstance.class.isAssignableFrom(type))
+                    handler = writeHandlers.get(proxiedType(type));
+                if (handler == null)
+                    handler = inheritanceLookup.valAt(type);
+                return handler == null ? NO_HANDLER : handler;
+            }
+        };
+        this.writeHandlerLookup = type -> {
+            Map<String, WriteHandler> handler = resolvedWriteHandlers.get(type);
+            return handler == NO_HANDLER ? null : handler;
+        };
+    }
+
+    private static Class<?> proxiedType(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces())
+            if (DynamicObject.class.isAssignableFrom(type))
+                return type;
+        return null;
+    }
+
+    /*
+     * Resolves the write handler for a newly created proxy class ahead of time, if its type has a tag.
+     */
+    void seedProxy(Class<?> proxyClass, Class<?> type) {
+        if (writeHandlers.containsKey(type))
+            resolvedWriteHandlers.get(proxyClass);
+    }
+
+    clojure.lang.ILookup ednReaders() {
+        return ednReaders;
+    }
+
+    AFn defaultReader() {
+        return defaultReader;
+    }
+
+    String tagFor(Class<?> type) {
+        return recordTags.get(type);
+    }
+
+    EdnTranslatorAdapter<?> ednTranslator(Class<?> type) {
+        return ednTranslators.get(type);
+    }
+
+    /*
+     * Finds the translator for the given class or the most specific of its supertypes, the way print-method would.
+     */
+    EdnTranslatorAdapter<?> ednTranslatorFor(Class<?> c) {
+        EdnTranslatorAdapter<?> exact = ednTranslators.get(c);
+        if (exact != null || ednTranslators.isEmpty())
+            return exact;
+        Class<?> best = null;
+        for (Class<?> type : ednTranslators.keySet()) {
+            if (type.isAssignableFrom(c) && (best == null || best.isAssignableFrom(type)))
+                best = type;
+        }
+        return best == null ? null : ednTranslators.get(best);
+    }
+
+    ILookup<Object, ReadHandler> readHandlerLookup() {
+        return readHandlerLookup;
+    }
+
+    ILookup<Class, Map<String, WriteHandler>> writeHandlerLookup() {
+        return writeHandlerLookup;
+    }
+
+    public <T> Registry withType(Class<T> type, EdnTranslator<T> translator) {
+        if (ednTranslators.containsKey(type))
+            return this; // already registered
+        EdnTranslatorAdapter<T> adapter = new EdnTranslatorAdapter<>(translator);
+        return new Registry(ednReaders.assoc(Symbol.intern(translator.getTag()), adapter),
+                with(ednTranslators, type, adapter), recordTags, defaultReader, writeHandlers, readHandlers, binaryTypes,
+                binaryTags);
+    }
+
+    public Registry withType(Class type, String tag, ReadHandler readHandler, WriteHandler writeHandler) {
+        if (binaryTypes.containsKey(type))
+            return this; // already registered
+        return new Registry(ednReaders, ednTranslators, recordTags, defaultReader,
+                with(writeHandlers, type, Collections.singletonMap(tag, writeHandler)),
+                withIfAbsent(readHandlers, tag, readHandler), with(binaryTypes, type, tag), binaryTags);
+    }
+
+    public <D extends DynamicObject<D>> Registry withTag(Class<D> type, String tag) {
+        IPersistentMap ednReaders = this.ednReaders;
+        Map<Class<?>, String> recordTags = this.recordTags;
+        if (!recordTags.containsKey(type)) {
+            ednReaders = ednReaders.assoc(Symbol.intern(tag), new RecordReader<>(type));
+            recordTags = with(recordTags, type, tag);
+        }
+
+        Map<Class, Map<String, WriteHandler>> writeHandlers = this.writeHandlers;
+        Map<Object, ReadHandler> readHandlers = this.readHandlers;
+        Map<Class<?>, String> binaryTags = this.binaryTags;
+        if (!binaryTags.containsKey(type)) {
+            WriteHandler writeHandler = new FressianWriteHandler<>(type, tag, Reflection.cachedKeys(type),
+                    Reflection.positionalLayout(type));
+            writeHandlers = with(writeHandlers, type, Collections.singletonMap(tag, writeHandler));
+            readHandlers = withIfAbsent(readHandlers, tag, new FressianReadHandler<>(type));
+            binaryTags = with(binaryTags, type, tag);
+        }
+
+        if (recordTags == this.recordTags && binaryTags == this.binaryTags)
+            return this;
+        return new Registry(ednReaders, ednTranslators, recordTags, defaultReader, writeHandlers, readHandlers,
+                binaryTypes, binaryTags);
+    }
+
+    public Registry withoutType(Class<?> type) {
+        IPersistentMap ednReaders = this.ednReaders;
+        EdnTranslatorAdapter<?> adapter = ednTranslators.get(type);
+        if (adapter != null)
+            ednReaders = ednReaders.without(Symbol.intern(adapter.getTag()));
+
+        Map<Object, ReadHandler> readHandlers = this.readHandlers;
+        String binaryTag = binaryTypes.get(type);
+        if (binaryTag != null)
+            readHandlers = without(readHandlers, binaryTag);
+
+        return new Registry(ednReaders, without(ednTranslators, type), recordTags, defaultReader,
+                without(writeHandlers, type), readHandlers, without(binaryTypes, type), binaryTags);
+    }
+
+    public Registry withoutTag(Class<?> type) {
+        IPersistentMap ednReaders = this.ednReaders;
+        String tag = recordTags.get(type);
+        if (tag != null)
+            ednReaders = ednReaders.without(Symbol.intern(tag));
+
+        Map<Object, ReadHandler> readHandlers = this.readHandlers;
+        String binaryTag = binaryTags.get(type);
+        if (binaryTag != null)
+            readHandlers = without(readHandlers, binaryTag);
+
+        return new Registry(ednReaders, ednTranslators, without(recordTags, type), defaultReader,
+                without(writeHandlers, type), readHandlers, binaryTypes, without(binaryTags, type));
+    }
+
+    public <T> Registry withDefaultReader(BiFunction<String, Object, T> reader) {
+        return new Registry(ednReaders, ednTranslators, recordTags, reader == null ? null : wrapReaderFunction(reader),
+                writeHandlers, readHandlers, binaryTypes, binaryTags);
+    }
+
+    private static <T> AFn wrapReaderFunction(BiFunction<String, Object, T> reader) {
+        return new AFn() {
+            @Override
+            public Object invoke(Object arg1, Object arg2) {
+                return reader.apply(arg1.toString(), arg2);
+            }
+        };
+    }
+
+    private static <K, V> Map<K, V> with(Map<K, V> map, K key, V value) {
+        HashMap<K, V> copy = new HashMap<>(map);
+        copy.put(key, value);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static <K, V> Map<K, V> withIfAbsent(Map<K, V> map, K key, V value) {
+        return map.containsKey(key) ? map : with(map, key, value);
+    }
+
+    private static <K, V> Map<K, V> without(Map<K, V> map, K key) {
+        if (!map.containsKey(key))
+            return map;
+        HashMap<K, V> copy = new HashMap<>(map);
+        copy.remove(key);
+        return Collections.unmodifiableMap(copy);
+    }
+}
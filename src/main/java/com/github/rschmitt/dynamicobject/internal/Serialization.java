@@ -4,24 +4,52 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
 
 import com.github.rschmitt.dynamicobject.DynamicObject;
+import com.github.rschmitt.dynamicobject.EdnTranslator;
+import org.fressian.handlers.ReadHandler;
+import org.fressian.handlers.WriteHandler;
 
+import static com.github.rschmitt.dynamicobject.internal.ClojureStuff.PrintMethod;
+
+@SuppressWarnings("rawtypes")
 public class Serialization {
-    @SuppressWarnings("unchecked")
+    private static volatile Registry registry = Registry.EMPTY;
+
+    public static Registry registry() {
+        return registry;
+    }
+
+    public static synchronized <T> void registerType(Class<T> type, EdnTranslator<T> translator) {
+        Registry next = registry.withType(type, translator);
+        if (next == registry)
+            return;
+        registry = next;
+        PrintMethod.addMethod(type, next.ednTranslator(type));
+    }
+
+    public static synchronized void registerType(Class type, String tag, ReadHandler readHandler, WriteHandler writeHandler) {
+        registry = registry.withType(type, tag, readHandler, writeHandler);
+    }
+
     public static synchronized <T> void deregisterType(Class<T> type) {
-        EdnSerialization.deregisterType(type);
-        FressianSerialization.deregisterType(type);
+        boolean hadTranslator = registry.ednTranslator(type) != null;
+        registry = registry.withoutType(type);
+        if (hadTranslator)
+            PrintMethod.removeMethod(type);
     }
 
     public static synchronized <D extends DynamicObject<D>> void registerTag(Class<D> type, String tag) {
-        EdnSerialization.registerTag(type, tag);
-        FressianSerialization.registerTag(type, tag);
+        registry = registry.withTag(type, tag);
     }
 
     public static synchronized <D extends DynamicObject<D>> void deregisterTag(Class<D> type) {
-        EdnSerialization.deregisterTag(type);
-        FressianSerialization.deregisterTag(type);
+        registry = registry.withoutTag(type);
+    }
+
+    public static synchronized <T> void setDefaultReader(BiFunction<String, Object, T> reader) {
+        registry = registry.withDefaultReader(reader);
     }
 
     @FunctionalInterface
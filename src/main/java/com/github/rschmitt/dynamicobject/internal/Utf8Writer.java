@@ -0,0 +1,194 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+
+/*
+ * A Writer that encodes directly to UTF-8 in a byte array, without an intermediate String or CharsetEncoder. Runs of
+ * ASCII characters, which is to say almost all of the keywords, symbols, and numbers in typical Edn, are copied with a
+ * single comparison per character. Unpaired surrogates are replaced with '?', just like String#getBytes does.
+ *
+ * When the array fills up, it is either drained to an OutputStream, grown, or, for a fixed region of a caller-supplied
+ * array, a BufferOverflowException is thrown.
+ *
+ * Buffers are pooled per thread through borrow() and release(), so a thread that serializes many objects reuses the
+ * same array instead of allocating a new one each time.
+ */
+final class Utf8Writer extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_SIZE = 1 << 20;
+    private static final ThreadLocal<byte[]> pool = new ThreadLocal<>();
+
+    private final OutputStream out;
+    private final boolean growable;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private int pendingHighSurrogate = -1;
+
+    private Utf8Writer(OutputStream out, boolean growable, byte[] buf, int pos, int limit) {
+        this.out = out;
+        this.growable = growable;
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+    }
+
+    static Utf8Writer to(OutputStream out, byte[] buf) {
+        return new Utf8Writer(out, false, buf, 0, buf.length);
+    }
+
+    static Utf8Writer growable(byte[] buf) {
+        return new Utf8Writer(null, true, buf, 0, buf.length);
+    }
+
+    static Utf8Writer fixed(byte[] buf, int offset, int limit) {
+        return new Utf8Writer(null, false, buf, offset, limit);
+    }
+
+    static byte[] borrow() {
+        byte[] buf = pool.get();
+        if (buf == null)
+            return new byte[BUFFER_SIZE];
+        pool.set(null);
+        return buf;
+    }
+
+    static void release(byte[] buf) {
+        if (buf.length <= MAX_POOLED_SIZE)
+            pool.set(buf);
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    /*
+     * The position in the buffer after the last byte written, once any pending surrogate has been written out.
+     */
+    int finish() {
+        if (pendingHighSurrogate >= 0) {
+            pendingHighSurrogate = -1;
+            ensure(1);
+            buf[pos++] = '?';
+        }
+        return pos;
+    }
+
+    @Override
+    public void write(int c) {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(String s, int off, int len) {
+        int end = off + len;
+        while (off < end) {
+            if (pendingHighSurrogate < 0) {
+                byte[] buf = this.buf;
+                int p = pos;
+                int stop = off + Math.min(limit - p, end - off);
+                while (off < stop) {
+                    char c = s.charAt(off);
+                    if (c >= 0x80)
+                        break;
+                    buf[p++] = (byte) c;
+                    off++;
+                }
+                pos = p;
+                if (off == end)
+                    return;
+            }
+            writeChar(s.charAt(off++));
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            writeChar(cbuf[i]);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) {
+        String s = String.valueOf(csq);
+        write(s, 0, s.length());
+        return this;
+    }
+
+    private void writeChar(char c) {
+        if (pendingHighSurrogate >= 0) {
+            char high = (char) pendingHighSurrogate;
+            pendingHighSurrogate = -1;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                ensure(4);
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            ensure(1);
+            buf[pos++] = '?';
+        }
+
+        if (c < 0x80) {
+            ensure(1);
+            buf[pos++] = (byte) c;
+        } else if (c < 0x800) {
+            ensure(2);
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            ensure(1);
+            buf[pos++] = '?';
+        } else {
+            ensure(3);
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void ensure(int n) {
+        if (limit - pos >= n)
+            return;
+        if (out != null) {
+            drain();
+        } else if (growable) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            limit = buf.length;
+        } else {
+            throw new BufferOverflowException();
+        }
+    }
+
+    private void drain() {
+        try {
+            out.write(buf, 0, pos);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        pos = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out == null)
+            return;
+        finish();
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
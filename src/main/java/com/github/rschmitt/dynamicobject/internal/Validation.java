@@ -12,6 +12,7 @@ import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -21,17 +22,19 @@ import static java.util.stream.Collectors.toList;
 
 class Validation {
 
-    static <T extends DynamicObject<T>> MethodHandle buildValidatorFor(Class<T> klass) throws Exception {
-        return new ValidationBuilder<T>(klass).buildValidator().asType(methodType(klass, klass));
+    static <T extends DynamicObject<T>> MethodHandle buildValidatorFor(Class<T> klass, Map<Method, Integer> getterSlots) throws Exception {
+        return new ValidationBuilder<T>(klass, getterSlots).buildValidator().asType(methodType(klass, klass));
     }
 
     static class ValidationBuilder<T extends DynamicObject<T>> {
         private static final MethodHandles.Lookup PRIVATE_LOOKUP = MethodHandles.lookup();
 
         private final Class<T> dynamicObjectType;
+        private final Map<Method, Integer> getterSlots;
 
-        ValidationBuilder(Class<T> dynamicObjectType) {
+        ValidationBuilder(Class<T> dynamicObjectType, Map<Method, Integer> getterSlots) {
             this.dynamicObjectType = dynamicObjectType;
+            this.getterSlots = getterSlots;
         }
 
         // returns MH of type DynamicObject(DynamicObjectInstance)
@@ -105,10 +108,12 @@ class Validation {
             MethodHandle getAndCache = PRIVATE_LOOKUP.findVirtual(
                     DynamicObjectInstance.class,
                     "getAndCacheValueFor",
-                    methodType(Object.class, Object.class, Type.class)
+                    methodType(Object.class, int.class, int.class, Object.class, Function.class)
             );
 
-            getAndCache = MethodHandles.insertArguments(getAndCache, 1, info.key, info.genericType);
+            int slot = getterSlots.getOrDefault(info.getter, -1);
+            Function<Object, Object> converter = Conversions.converterFor(info.getter);
+            getAndCache = MethodHandles.insertArguments(getAndCache, 1, slot, getterSlots.size(), info.key, converter);
 
             if (Reflection.getRawType(info.genericType) == Optional.class) {
                 // Unbox the Optional by invoking .orElse(null)
@@ -150,7 +155,12 @@ class Validation {
                     return;
                 }
 
-                valueChecker.accept(value);
+                try {
+                    valueChecker.accept(value);
+                } catch (ClassCastException e) {
+                    // Collections returned by @Lazy getters only convert their elements once they are accessed
+                    result.addMismatchedField(info.getter, instance.getMap().get(info.key).getClass());
+                }
             };
         }
 
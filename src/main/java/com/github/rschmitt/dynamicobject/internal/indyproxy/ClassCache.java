@@ -0,0 +1,68 @@
+package com.github.rschmitt.dynamicobject.internal.indyproxy;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.objectweb.asm.Opcodes.ASM7;
+
+/*
+ * Reads and writes proxy class files in an on-disk cache. A cached class is only used if the fingerprint embedded in
+ * it matches the fingerprint of the builder that is asking for it; anything else (a missing or unreadable file, a
+ * stale or truncated class) is treated as a cache miss. Writes go through a temporary file and an atomic rename, so
+ * concurrent processes sharing a cache directory never observe a partially written class.
+ */
+final class ClassCache {
+    private ClassCache() {}
+
+    static byte[] read(Path file, String fingerprint) {
+        try {
+            if (!Files.isRegularFile(file)) return null;
+            byte[] classData = Files.readAllBytes(file);
+            return fingerprint.equals(fingerprintOf(classData)) ? classData : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static void write(Path file, byte[] classData) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(tmp, classData);
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The cache is an optimization; the proxy we just generated is still perfectly usable.
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    private static String fingerprintOf(byte[] classData) {
+        String[] fingerprint = new String[1];
+        new ClassReader(classData).accept(new ClassVisitor(ASM7) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (DynamicProxy.FINGERPRINT_FIELD_NAME.equals(name) && value instanceof String) {
+                    fingerprint[0] = (String) value;
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return fingerprint[0];
+    }
+}
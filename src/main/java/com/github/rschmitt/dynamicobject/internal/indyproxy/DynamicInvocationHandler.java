@@ -10,7 +10,8 @@ public interface DynamicInvocationHandler {
      * This callback is invoked the first time a proxy method is invoked. It should return a CallSite to be bound to the
      * proxy method in question. The CallSite's method arguments (which can also be inspected via methodType) will
      * consist of the arguments of the interface or superclass method in question, plus a prepended argument for the
-     * proxy itself.
+     * proxy itself. The prepended argument is typed as the proxy's superclass; the proxy class itself is available as
+     * {@code proxyLookup.lookupClass()}.
      * <br>
      * Note that the type of the method bound to the callsite must exactly match methodType. Using
      * {@link java.lang.invoke.MethodHandle#asType} is recommended.
@@ -22,7 +23,7 @@ public interface DynamicInvocationHandler {
      *                    proxy superclass methods.
      * @param methodName  The name of the proxy method that is being invoked
      * @param methodType  The type of the callee (same as the type of the proxy method, but with the proxy instance
-     *                    itself prepended)
+     *                    itself prepended, typed as the proxy's superclass)
      * @param superMethod If an unambiguous supermethod was found, this has a handle to that supermethod. Otherwise,
      *                    this is null.
      * @return A call site to bind to the proxy method.
@@ -7,6 +7,10 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -24,6 +28,10 @@ public class DynamicProxy {
     public static final String BOOTSTRAP_DYNAMIC_METHOD_DESCRIPTOR
             = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;ILjava/lang/invoke/MethodHandle;)Ljava/lang/invoke/CallSite;";
     public static final String INIT_PROXY_METHOD_NAME = "$$initProxy";
+    public static final String FINGERPRINT_FIELD_NAME = "$$fingerprint";
+
+    // Part of every fingerprint; this must be changed whenever the generated code changes.
+    private static final String GENERATOR_VERSION = "1";
 
     private final Class<?> proxyClass;
     private final MethodHandle constructor;
@@ -95,6 +103,7 @@ public class DynamicProxy {
         private boolean hasNonAccessibleSupers = false, hasCustomPackageName = false;
         private ClassLoader parentLoader = null;
         private Class[] ctorArgs = new Class[0];
+        private Path cacheDirectory = null;
 
         public Builder withInterfaces(Class<?>... interfaces) {
             for (Class<?> klass : interfaces) {
@@ -182,6 +191,23 @@ public class DynamicProxy {
             packageName = klassPackage;
         }
 
+        /**
+         * Enables an on-disk cache of generated proxy classes. A cached class is used instead of generating a new one
+         * if its fingerprint (see {@link #matches(Class)}) is current. The cache is laid out like a classpath
+         * directory, so it can also be put on the classpath, e.g. in order to include the proxies in a CDS archive.
+         * Cache failures are ignored.
+         * <br>
+         * Only proxies with an explicit class name are cached.
+         *
+         * @param directory the root of the cache
+         * @return this builder
+         */
+        public Builder withCacheDirectory(Path directory) {
+            cacheDirectory = directory;
+
+            return this;
+        }
+
         public Builder withInvocationHandler(DynamicInvocationHandler handler) {
             invocationHandler = handler;
 
@@ -317,7 +343,142 @@ public class DynamicProxy {
             // we'll do this again later, but do it now to make sure the package is set appropriately
             checkSuperclassConstructor();
 
-            Class<?> proxyClass = generateProxyClass(this);
+            return bind(generateProxyClass(this));
+        }
+
+        /**
+         * Generates the bytecode of the proxy class without loading it. The class will have the name returned by
+         * {@link #proxyClassName()}; if the class is later loaded by other means (for instance, because it was written
+         * to the classpath at build time), it can be bound to an invocation handler with {@link #build(Class)}.
+         *
+         * @return the class file of the proxy
+         */
+        public byte[] generate() throws Exception {
+            injectSuperinterfaces();
+            checkSuperclassConstructor();
+
+            return generateProxyBytes(this, proxyInternalName());
+        }
+
+        /**
+         * Binds a proxy class that was previously generated by {@link #generate()} with an identically configured
+         * builder to this builder's invocation handler.
+         *
+         * @param proxyClass the loaded proxy class
+         * @return the proxy
+         */
+        public DynamicProxy build(Class<?> proxyClass) throws Exception {
+            return bind(proxyClass);
+        }
+
+        /**
+         * Checks whether the given class was generated by an identically configured builder from the current versions
+         * of its superclass and interfaces, by comparing fingerprints of the inputs to the generator.
+         *
+         * @param proxyClass a proxy class that was generated ahead of time
+         * @return true if proxyClass can be bound with {@link #build(Class)}
+         */
+        public boolean matches(Class<?> proxyClass) {
+            injectSuperinterfaces();
+
+            try {
+                Field field = proxyClass.getDeclaredField(FINGERPRINT_FIELD_NAME);
+                field.setAccessible(true);
+                return field.getType() == String.class && fingerprint(proxyInternalName()).equals(field.get(null));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return false;
+            }
+        }
+
+        /*
+         * A hash of everything that determines the generated bytecode: the class name, the superclass and its
+         * constructor, the interfaces, and the methods that will be emitted. The invocation handler is not part of the
+         * class, and neither are annotations, since they only affect how the handler links each method.
+         */
+        private String fingerprint(String classInternalName) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(GENERATOR_VERSION).append('\n');
+            sb.append(classInternalName).append('\n');
+            sb.append(superclass.getName()).append(Arrays.toString(ctorArgs)).append('\n');
+            // Superinterfaces are injected in no particular order, and the order does not matter.
+            TreeSet<String> interfaceNames = new TreeSet<>();
+            for (Class<?> iface : interfaces) {
+                interfaceNames.add(iface.getName());
+            }
+            sb.append(interfaceNames).append('\n');
+            sb.append(hasFinalizer).append('\n');
+
+            ArrayList<String> methodLines = new ArrayList<>();
+            collectAllMethods(this).forEach((method, contributors) -> {
+                StringBuilder line = new StringBuilder(method.getName()).append(method.getDescriptor());
+                ArrayList<String> owners = new ArrayList<>();
+                for (Method m : contributors) {
+                    owners.add(m.getDeclaringClass().getName() + ":" + m.getModifiers() + ":" + m.isDefault());
+                }
+                Collections.sort(owners);
+                methodLines.add(line.append(owners).toString());
+            });
+            Collections.sort(methodLines);
+            for (String line : methodLines) {
+                sb.append(line).append('\n');
+            }
+
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @return the binary name of the proxy class, or null if no class name has been set, in which case a unique
+         *         name will be chosen when the proxy is built
+         */
+        public String proxyClassName() {
+            if (className == null) return null;
+            return proxyInternalName().replace('/', '.');
+        }
+
+        private String proxyInternalName() {
+            String packageInternalName = packageName;
+            if (packageInternalName == null) {
+                packageInternalName = "com.github.rschmitt.dynamicobject.internal.indyproxy.generated";
+            }
+            packageInternalName = packageInternalName.replaceAll("\\.", "/");
+
+            String name = className;
+
+            if (name == null) {
+                name = String.format("DynamicProxy$$%d", CLASS_COUNT.incrementAndGet());
+            }
+
+            return packageInternalName + "/" + name;
+        }
+
+        /*
+         * A class in the proxy's package, which can serve as the host of a hidden proxy class, or null if the proxy
+         * will be generated in the default package.
+         */
+        private Class<?> hostClass() {
+            if (packageName == null) return null;
+
+            ArrayList<Class<?>> candidates = new ArrayList<>(interfaces);
+            candidates.add(superclass);
+            for (Class<?> klass : candidates) {
+                if (klass.getPackage() != null && klass.getPackage().getName().equals(packageName)) {
+                    return klass;
+                }
+            }
+
+            return null;
+        }
+
+        private DynamicProxy bind(Class<?> proxyClass) throws Exception {
             MethodHandle constructor = LOOKUP.findConstructor(proxyClass, MethodType.methodType(Void.TYPE, ctorArgs));
 
             MethodHandle init = LOOKUP.findStatic(proxyClass, INIT_PROXY_METHOD_NAME, MethodType.methodType(Void.TYPE, DynamicInvocationHandler.class));
@@ -333,21 +494,39 @@ public class DynamicProxy {
     }
 
     private static Class<?> generateProxyClass(Builder builder) throws Exception {
-        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        byte[] classData = cachedOrGeneratedProxyBytes(builder, builder.proxyInternalName());
 
-        String packageInternalName = builder.packageName;
-        if (packageInternalName == null) {
-            packageInternalName = "com.github.rschmitt.dynamicobject.internal.indyproxy.generated";
+        Class<?> host = builder.hostClass();
+        if (host != null) {
+            Class<?> hiddenClass = HiddenClasses.define(host, classData);
+            if (hiddenClass != null) return hiddenClass;
         }
-        packageInternalName = packageInternalName.replaceAll("\\.", "/");
 
-        String className = builder.className;
+        return loadClass(builder.parentLoader, classData);
+    }
 
-        if (className == null) {
-            className = String.format("DynamicProxy$$%d", CLASS_COUNT.incrementAndGet());
+    private static byte[] cachedOrGeneratedProxyBytes(Builder builder, String classInternalName) throws Exception {
+        if (builder.cacheDirectory == null || builder.className == null) {
+            return generateProxyBytes(builder, classInternalName);
         }
 
-        String classInternalName = packageInternalName + "/" + className;
+        String fingerprint = builder.fingerprint(classInternalName);
+        Path file = builder.cacheDirectory.resolve(classInternalName + ".class");
+        byte[] classData = ClassCache.read(file, fingerprint);
+        if (classData == null) {
+            classData = generateProxyBytes(builder, classInternalName, fingerprint);
+            ClassCache.write(file, classData);
+        }
+        return classData;
+    }
+
+    private static byte[] generateProxyBytes(Builder builder, String classInternalName) throws Exception {
+        return generateProxyBytes(builder, classInternalName, builder.fingerprint(classInternalName));
+    }
+
+    private static byte[] generateProxyBytes(Builder builder, String classInternalName, String fingerprint) throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+
         String superclassName = Type.getInternalName(builder.superclass);
         String[] interfaceNames = new String[builder.interfaces.size()];
         for (int i = 0; i < builder.interfaces.size(); i++) {
@@ -361,23 +540,15 @@ public class DynamicProxy {
                 superclassName,
                 interfaceNames);
 
-        visitFields(cw, builder);
+        visitFields(cw, fingerprint);
         visitCtor(cw, superclassName, builder.checkSuperclassConstructor());
         visitInternalMethods(cw, classInternalName, builder);
 
-        HashMap<MethodIdentifier, ArrayList<Method>> methods = new HashMap<>();
-        for (Class<?> interfaceClass : builder.interfaces) {
-            collectMethods(interfaceClass, builder, methods);
-        }
-        collectMethods(builder.superclass, builder, methods);
-
-        visitMethods(cw, classInternalName, methods);
+        visitMethods(cw, classInternalName, superclassName, collectAllMethods(builder));
 
         cw.visitEnd();
 
-        byte[] classData = cw.toByteArray();
-
-        return loadClass(builder.parentLoader, classData);
+        return cw.toByteArray();
     }
 
     private static Class<?> loadClass(ClassLoader parentLoader, byte[] classData) throws Exception {
@@ -406,13 +577,14 @@ public class DynamicProxy {
         }
     }
 
-    private static void visitMethods(ClassVisitor cw, String classInternalName, HashMap<MethodIdentifier, ArrayList<Method>> methods) {
-        methods.forEach((method, contributors) -> emitMethod(cw, classInternalName, method, contributors));
+    private static void visitMethods(ClassVisitor cw, String classInternalName, String superclassName, HashMap<MethodIdentifier, ArrayList<Method>> methods) {
+        methods.forEach((method, contributors) -> emitMethod(cw, classInternalName, superclassName, method, contributors));
     }
 
     private static void emitMethod(
             ClassVisitor cw,
             String classInternalName,
+            String superclassName,
             MethodIdentifier method,
             List<Method> contributors
     ) {
@@ -445,8 +617,10 @@ public class DynamicProxy {
 
         ArrayList<Type> descriptorArgs = new ArrayList<>();
 
+        // 'this' is passed as an instance of the superclass. A hidden class cannot be named in a descriptor, since it
+        // cannot be resolved by name.
         mv.visitVarInsn(ALOAD, 0); // load 'this'
-        descriptorArgs.add(Type.getObjectType(classInternalName));
+        descriptorArgs.add(Type.getObjectType(superclassName));
 
         int argIndex = 1;
         for (Class<?> argKlass : method.getArgs()) {
@@ -560,7 +734,7 @@ public class DynamicProxy {
         }
     }
 
-    private static void visitFields(ClassVisitor cw, Builder builder) {
+    private static void visitFields(ClassVisitor cw, String fingerprint) {
         FieldVisitor fw = cw.visitField(
                 ACC_PRIVATE | ACC_STATIC,
                 "$$handler",
@@ -569,6 +743,15 @@ public class DynamicProxy {
                 null
         );
         fw.visitEnd();
+
+        fw = cw.visitField(
+                ACC_PUBLIC | ACC_STATIC | ACC_FINAL,
+                FINGERPRINT_FIELD_NAME,
+                Type.getDescriptor(String.class),
+                null,
+                fingerprint
+        );
+        fw.visitEnd();
     }
 
     private static void visitInternalMethods(ClassVisitor cw, String classBinaryName, Builder builder) {
@@ -668,6 +851,15 @@ public class DynamicProxy {
         }
     }
 
+    private static HashMap<MethodIdentifier, ArrayList<Method>> collectAllMethods(Builder builder) {
+        HashMap<MethodIdentifier, ArrayList<Method>> methods = new HashMap<>();
+        for (Class<?> interfaceClass : builder.interfaces) {
+            collectMethods(interfaceClass, builder, methods);
+        }
+        collectMethods(builder.superclass, builder, methods);
+        return methods;
+    }
+
     private static void collectMethods(Class<?> klass, Builder builder, HashMap<MethodIdentifier, ArrayList<Method>> methods) {
         if (klass.getSuperclass() != null && klass != Object.class) {
             collectMethods(klass.getSuperclass(), builder, methods);
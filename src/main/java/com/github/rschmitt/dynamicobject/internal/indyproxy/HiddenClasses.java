@@ -0,0 +1,16 @@
+package com.github.rschmitt.dynamicobject.internal.indyproxy;
+
+/*
+ * Defines proxy classes as hidden classes in the package of a host class, when the platform allows it. Hidden classes
+ * do not need a class loader of their own and can be unloaded as soon as they become unreachable.
+ *
+ * Hidden classes require Java 15, so this version always declines and the caller falls back to defining an ordinary
+ * class. The real implementation is in src/main/java15, and it is selected at runtime from the multi-release jar.
+ */
+final class HiddenClasses {
+    private HiddenClasses() {}
+
+    static Class<?> define(Class<?> host, byte[] classData) {
+        return null;
+    }
+}
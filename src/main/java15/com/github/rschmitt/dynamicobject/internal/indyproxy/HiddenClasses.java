@@ -0,0 +1,27 @@
+package com.github.rschmitt.dynamicobject.internal.indyproxy;
+
+import java.lang.invoke.MethodHandles;
+
+/*
+ * Defines proxy classes as hidden classes in the package of a host class, when the platform allows it. Hidden classes
+ * do not need a class loader of their own and can be unloaded as soon as they become unreachable.
+ *
+ * Defining a hidden class requires full privilege access to the host's package. That is available when the host is in
+ * the same module as this library (e.g. both are on the classpath of the same class loader) or in a package that is
+ * open to it; otherwise, this returns null and the caller falls back to defining an ordinary class.
+ */
+final class HiddenClasses {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private HiddenClasses() {}
+
+    static Class<?> define(Class<?> host, byte[] classData) {
+        try {
+            MethodHandles.Lookup hostLookup = MethodHandles.privateLookupIn(host, LOOKUP);
+            if (!hostLookup.hasFullPrivilegeAccess()) return null;
+            return hostLookup.defineHiddenClass(classData, true).lookupClass();
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -39,6 +39,50 @@ public class BuilderTest {
         assertEquals("{:str nil}", DynamicObject.serialize(obj));
     }
 
+    @Test
+    public void buildBatch() {
+        Buildable expected = DynamicObject.newInstance(Buildable.class).str("string").i(4).l(Long.MAX_VALUE).f((float) 3.14);
+        Buildable actual = DynamicObject.build(Buildable.class, b -> b.str("string").i(4).l(Long.MAX_VALUE).f((float) 3.14));
+
+        assertEquals(expected, actual);
+        assertEquals(expected.getMap(), actual.getMap());
+        assertEquals(DynamicObject.serialize(expected), DynamicObject.serialize(actual));
+        assertEquals(4, actual.i());
+    }
+
+    @Test
+    public void buildBatchWithStatements() {
+        Buildable actual = DynamicObject.build(Buildable.class, b -> {
+            b.str("first");
+            assertEquals("first", b.str());
+            b.str("second");
+            assertEquals("second", b.str());
+            b.i(1);
+        });
+
+        assertEquals(DynamicObject.newInstance(Buildable.class).str("second").i(1), actual);
+    }
+
+    @Test
+    public void buildBatchWithMetadata() {
+        Buildable actual = DynamicObject.build(Buildable.class, b -> b.str("string").source("source"));
+
+        assertEquals("source", actual.source());
+        assertEquals(DynamicObject.newInstance(Buildable.class).str("string"), actual);
+    }
+
+    @Test
+    public void buildLargeBatch() {
+        Buildable actual = DynamicObject.build(Buildable.class, b -> {
+            for (int i = 0; i < 100; i++)
+                b.nested(DynamicObject.newInstance(Buildable.class).i(i)).str(String.valueOf(i)).i(i);
+        });
+
+        assertEquals("99", actual.str());
+        assertEquals(99, actual.nested().i());
+        assertEquals(3, actual.size());
+    }
+
     public interface Buildable extends DynamicObject<Buildable> {
         String str();
         int i();
@@ -46,6 +90,8 @@ public class BuilderTest {
         short s();
         float f();
         double d();
+        Buildable nested();
+        @Meta String source();
 
         Buildable str(String str);
         Buildable i(int i);
@@ -53,5 +99,7 @@ public class BuilderTest {
         Buildable s(short s);
         Buildable f(float f);
         Buildable d(double d);
+        Buildable nested(Buildable nested);
+        Buildable source(String source);
     }
 }
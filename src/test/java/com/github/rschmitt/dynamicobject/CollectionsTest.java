@@ -7,6 +7,8 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.IntStream.range;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Base64;
@@ -130,6 +132,19 @@ public class CollectionsTest {
         binaryRoundTrip(mapSchema);
     }
 
+    @Test
+    public void collectionsOfUnconvertedElementsAreNotCopied() {
+        ListSchema listSchema = deserialize("{:strings [\"one\" \"two\"], :ints [1 2]}", ListSchema.class);
+        SetSchema setSchema = deserialize("{:strings #{\"one\" \"two\"}}", SetSchema.class);
+        MapSchema mapSchema = deserialize("{:dictionary {\"key\" \"value\"}, :ints {1 2}}", MapSchema.class);
+
+        assertSame(listSchema.get(DynamicObject.deserialize(":strings", Object.class)), listSchema.strings());
+        assertSame(setSchema.get(DynamicObject.deserialize(":strings", Object.class)), setSchema.strings());
+        assertSame(mapSchema.get(DynamicObject.deserialize(":dictionary", Object.class)), mapSchema.dictionary());
+        assertNotSame(listSchema.get(DynamicObject.deserialize(":ints", Object.class)), listSchema.ints());
+        assertNotSame(mapSchema.get(DynamicObject.deserialize(":ints", Object.class)), mapSchema.ints());
+    }
+
     private void binaryRoundTrip(Object expected) {
         Object actual = DynamicObject.fromFressianByteArray(DynamicObject.toFressianByteArray(expected));
         assertEquals(expected, actual);
@@ -0,0 +1,142 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.TestUtils.assertEquivalent;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import clojure.lang.RT;
+import clojure.lang.Var;
+
+public class DynamicObjectSerializerTest {
+    private static final DynamicObjectSerializer first = DynamicObjectSerializer.builder()
+            .registerTag(Tenant.class, "first/tenant")
+            .registerType(Token.class, new TokenTranslator("first/token"))
+            .build();
+    private static final DynamicObjectSerializer second = DynamicObjectSerializer.builder()
+            .registerTag(Tenant.class, "second/tenant")
+            .registerType(Token.class, new TokenTranslator("second/token"))
+            .setDefaultReader(null)
+            .build();
+
+    @Test
+    public void serializersHaveIndependentTags() {
+        Tenant tenant = DynamicObject.newInstance(Tenant.class).name("name");
+
+        assertEquivalent("#first/tenant{:name \"name\"}", first.serialize(tenant));
+        assertEquivalent("#second/tenant{:name \"name\"}", second.serialize(tenant));
+        assertEquivalent("{:name \"name\"}", DynamicObject.serialize(tenant));
+
+        assertEquals(tenant, first.deserialize("#first/tenant{:name \"name\"}", Object.class));
+        assertEquals(tenant, second.deserialize("#second/tenant{:name \"name\"}", Object.class));
+        assertTrue(first.deserialize("#second/tenant{:name \"name\"}", Object.class) instanceof Unknown);
+        assertTrue(DynamicObject.deserialize("#first/tenant{:name \"name\"}", Object.class) instanceof Unknown);
+    }
+
+    @Test
+    public void serializersHaveIndependentTranslators() {
+        Token token = new Token(new UUID(1, 2));
+
+        assertEquals("#first/token\"" + token.id + "\"", first.serialize(token));
+        assertEquals("#second/token\"" + token.id + "\"", second.serialize(token));
+        assertEquals(token, first.deserialize(first.serialize(token), Token.class));
+        assertEquals(token, second.deserialize(second.serialize(token), Token.class));
+    }
+
+    @Test
+    public void serializersHaveIndependentDefaultReaders() {
+        assertTrue(first.deserialize("#unknown/tag 1", Object.class) instanceof Unknown);
+        assertThrows(RuntimeException.class, () -> second.deserialize("#unknown/tag 1", Object.class));
+    }
+
+    @Test
+    public void serializersKeepTheirTagsWhenPrintingThroughPrintMethod() {
+        Tenant tenant = DynamicObject.newInstance(Tenant.class).name("name");
+        List<Tenant> tenants = Arrays.asList(tenant, tenant);
+
+        Var.pushThreadBindings(RT.map(RT.var("clojure.core", "*print-meta*"), true));
+        try {
+            assertEquivalent("#first/tenant{:name \"name\"}", first.serialize(tenant));
+            assertEquivalent("[#second/tenant{:name \"name\"} #second/tenant{:name \"name\"}]", second.serialize(tenants));
+            assertEquivalent("{:name \"name\"}", DynamicObject.serialize(tenant));
+        } finally {
+            Var.popThreadBindings();
+        }
+    }
+
+    @Test
+    public void fressianRoundTrip() {
+        Tenant tenant = DynamicObject.newInstance(Tenant.class).name("name");
+
+        assertEquals(tenant, first.fromFressianByteArray(first.toFressianByteArray(tenant)));
+        assertFalse(DynamicObject.fromFressianByteArray(first.toFressianByteArray(tenant)) instanceof Tenant);
+    }
+
+    @Test
+    public void defaultSerializerSeesLaterRegistrations() {
+        DynamicObjectSerializer serializer = new DynamicObjectSerializer();
+        Tenant tenant = DynamicObject.newInstance(Tenant.class).name("name");
+
+        DynamicObject.registerTag(Tenant.class, "global/tenant");
+        try {
+            assertEquivalent("#global/tenant{:name \"name\"}", serializer.serialize(tenant));
+            assertEquivalent("#first/tenant{:name \"name\"}", first.serialize(tenant));
+        } finally {
+            DynamicObject.deregisterTag(Tenant.class);
+        }
+    }
+
+    public interface Tenant extends DynamicObject<Tenant> {
+        String name();
+
+        Tenant name(String name);
+    }
+
+    public static final class Token {
+        final UUID id;
+
+        Token(UUID id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Token && ((Token) o).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    private static final class TokenTranslator implements EdnTranslator<Token> {
+        private final String tag;
+
+        TokenTranslator(String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public Token read(Object obj) {
+            return new Token(UUID.fromString((String) obj));
+        }
+
+        @Override
+        public String write(Token token) {
+            return "\"" + token.id + "\"";
+        }
+
+        @Override
+        public String getTag() {
+            return tag;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.rschmitt.dynamicobject;
+
+import clojure.java.api.Clojure;
+import clojure.lang.IFn;
+import clojure.lang.RT;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.deserialize;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EdnReaderTest {
+    private static final IFn ReadString = Clojure.var("clojure.edn/read-string");
+
+    private static final String[] valid = {
+            "nil", "true", "false", "0", "-0", "+7", "42", "-42", "9223372036854775807", "9223372036854775808",
+            "-9223372036854775808", "123456789012345678", "42N", "0N", "0x1F", "-0x1f", "017", "2r1010", "36rZZ",
+            "1.5", "-1.5e10", "1E3", "1.", "3.14M", "1/2", "-4/2", "+3/4", "##Inf", "##-Inf",
+            "\"\"", "\"a string\"", "\"\\t\\r\\n\\\\\\\"\\b\\f\"", "\"\\u00e9\\u4e2d\"", "\"\\101\\0\"", "\"caf\u00e9\"",
+            "\\a", "\\newline", "\\space", "\\tab", "\\backspace", "\\formfeed", "\\return", "\\u00e9", "\\o101",
+            ":kw", ":ns/kw", ":a.b/c-d?", ":/", "sym", "ns/sym", "/", "+", "-", "-sym", "+sym", ".5", "a#b", "a'b",
+            "()", "(1 2 3)", "[]", "[1 [2 [3]]]", "{}", "{:a 1, :b [2 3]}", "#{}", "#{1 2 3}", "{1 #{:x} [2] (3)}",
+            "[1,2,,3]", "[1 ; comment\n 2]", "[1 #_ 2 3]", "#_ :discarded :kept", "; comment\n:kept", "[#_ #_ 1 2]",
+            "#:ns{:a 1, :_/b 2, :c/d 3, e 4}", "#:ns {:a 1}",
+            "#inst \"1985-04-12T23:20:50.52Z\"", "#uuid \"f81d4fae-7dec-11d0-a765-00a0c91e6bf6\"",
+            "^:m [1]", "^{:a 1} sym", "^tag {}", "^\"str\" ()",
+            "(a b) trailing", "  \n\t :leading-whitespace",
+    };
+
+    private static final String[] invalid = {
+            "", "   ", "(", "[1 2", "{:a}", "{:a 1 :a 2}", "#{1 1}", ")", "]", "}", "\"unterminated", "\\", "##Foo",
+            "##1", "#<foo>", "#?(:clj 1)", "#!shebang", "#1", "#foo", ":", "::kw", "ns:/x", "kw:",
+            "a::b", "1.2.3", "0x", "08", "1/0", "@x", "`x", "~x", "x@y", "\"\\x\"", "\"\\u12\"", "\"\\400\"",
+            "\\u12", "\\uD800", "\\o400", "\\o1234", "\\foo", "^1 []", "^:m 1", "#:{:a 1}", "#:ns/x {:a 1}", "#:ns []",
+            "#:ns {:a}", "{:a 1 :a 2 :b}", "{:a 1 :a 2 @}", "#{1 1 @}",
+    };
+
+    @Test
+    public void validInputsMatchClojure() {
+        for (String edn : valid) {
+            Object expected = ReadString.invoke(edn);
+            Object actual = deserialize(edn, Object.class);
+            assertEquals(expected, actual, edn);
+            assertEquals(RT.meta(expected), RT.meta(actual), edn);
+            if (expected != null)
+                assertEquals(expected.getClass(), actual.getClass(), edn);
+        }
+    }
+
+    @Test
+    public void invalidInputsMatchClojure() {
+        for (String edn : invalid) {
+            if (edn.trim().isEmpty()) {
+                // An empty string is nil to clojure.edn/read-string, but an error to deserialize
+                assertThrows(NoSuchElementException.class, () -> deserialize(edn, Object.class));
+                continue;
+            }
+            Exception expected;
+            try {
+                ReadString.invoke(edn);
+                throw new AssertionError("Clojure accepted " + edn);
+            } catch (Exception ex) {
+                expected = ex;
+            }
+            Exception actual = assertThrows(Exception.class, () -> deserialize(edn, Object.class), edn);
+            assertEquals(expected.getClass(), actual.getClass(), edn);
+            assertEquals(expected.getMessage(), actual.getMessage(), edn);
+        }
+    }
+
+    @Test
+    public void readerIsOnlyConsumedUpToTheEndOfTheElement() throws IOException {
+        for (String edn : new String[]{"{:a 1} rest", "42 rest", ":kw rest", "\"s\" rest", "[1] rest", "#_ 1 :x rest"}) {
+            PushbackReader reader = new PushbackReader(new StringReader(edn));
+
+            read(reader);
+
+            char[] rest = new char[5];
+            assertEquals(5, reader.read(rest));
+            assertEquals(" rest", new String(rest), edn);
+        }
+    }
+
+    @Test
+    public void readerIsConsumedUpToTheEndOfAFormWithDuplicates() throws IOException {
+        for (String edn : new String[]{"{:a 1 :a 2} rest", "#{1 1} rest"}) {
+            PushbackReader reader = new PushbackReader(new StringReader(edn));
+
+            assertThrows(IllegalArgumentException.class, () -> read(reader), edn);
+
+            char[] rest = new char[5];
+            assertEquals(5, reader.read(rest));
+            assertEquals(" rest", new String(rest), edn);
+        }
+    }
+
+    @Test
+    public void utf8Input() {
+        String edn = "{:name \"caf\u00e9 \u4e2d\u6587 \ud83d\ude00\", :x 1}";
+        byte[] bytes = edn.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        buffer.put((byte) ' ').put(bytes).put((byte) ' ').flip().position(1);
+
+        assertEquals(ReadString.invoke(edn), deserialize(bytes, Object.class));
+        assertEquals(ReadString.invoke(edn), deserialize(buffer, Object.class));
+        assertEquals(1, buffer.position());
+        assertEquals(1, deserialize(bytes, Utf8.class).x());
+    }
+
+    private static Object read(PushbackReader reader) {
+        return DynamicObject.deserializeStream(reader, Object.class).iterator().next();
+    }
+
+    public interface Utf8 extends DynamicObject<Utf8> {
+        String name();
+        int x();
+    }
+}
@@ -7,6 +7,7 @@ import static com.github.rschmitt.dynamicobject.DynamicObject.toFressianByteArra
 import static com.github.rschmitt.dynamicobject.TestUtils.assertEquivalent;
 import static java.lang.String.format;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.util.List;
@@ -72,6 +73,14 @@ public class ExtensibilityTest {
         assertEquivalent(expectedFormattedString, holder.toFormattedString());
     }
 
+    @Test
+    public void deregisteredTypeIsNotPrintedWithItsTag() {
+        DynamicObject.deregisterType(DumbClass.class);
+
+        // Clojure's default printer falls back on toString()
+        assertThrows(UnsupportedOperationException.class, () -> serialize(new DumbClass(24, "twenty-four")));
+    }
+
     @Test
     public void serializeBuiltinType() {
         assertEquals("true", serialize(true));
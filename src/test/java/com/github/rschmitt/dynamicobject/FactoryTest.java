@@ -0,0 +1,50 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.newInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+public class FactoryTest {
+    @Test
+    public void factoryIsEquivalentToWrap() {
+        Function<Map, Simple> factory = DynamicObject.factory(Simple.class);
+        Map map = newInstance(Simple.class).str("str").getMap();
+
+        assertEquals(DynamicObject.wrap(map, Simple.class), factory.apply(map));
+        assertEquals("str", factory.apply(map).str());
+        assertSame(map, factory.apply(map).getMap());
+    }
+
+    @Test
+    public void factoryPassesThroughInstances() {
+        Simple simple = newInstance(Simple.class).str("str");
+
+        assertSame(simple, DynamicObject.factory(Simple.class).apply(simple));
+    }
+
+    @Test
+    public void factoryRejectsNull() {
+        assertThrows(NullPointerException.class, () -> DynamicObject.factory(Simple.class).apply(null));
+    }
+
+    @Test
+    public void updatesPreserveProxyClass() {
+        Simple simple = newInstance(Simple.class);
+
+        assertSame(simple.getClass(), simple.str("str").getClass());
+        assertSame(simple.getClass(), simple.str("str").merge(simple).getClass());
+        assertSame(simple.getClass(), simple.str("str").subtract(simple).getClass());
+    }
+
+    public interface Simple extends DynamicObject<Simple> {
+        String str();
+
+        Simple str(String str);
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.deserialize;
+import static com.github.rschmitt.dynamicobject.DynamicObject.fromFressianByteArray;
+import static com.github.rschmitt.dynamicobject.DynamicObject.newInstance;
+import static com.github.rschmitt.dynamicobject.DynamicObject.serialize;
+import static com.github.rschmitt.dynamicobject.DynamicObject.toFressianByteArray;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import clojure.lang.IPersistentMap;
+import clojure.lang.Keyword;
+
+public class FixedShapeTest {
+    @BeforeEach
+    public void setup() {
+        DynamicObject.registerTag(Shaped.class, "Shaped");
+    }
+
+    @AfterEach
+    public void teardown() {
+        DynamicObject.deregisterTag(Shaped.class);
+    }
+
+    @Test
+    public void gettersAndBuilders() {
+        Shaped shaped = newInstance(Shaped.class).str("str").i(1);
+
+        assertEquals("str", shaped.str());
+        assertEquals(1, shaped.i());
+        assertNull(shaped.inner());
+        assertEquals(2, shaped.getMap().size());
+    }
+
+    @Test
+    public void absentKeysAreDistinctFromNullValues() {
+        Shaped shaped = deserialize("#Shaped{:str nil}", Shaped.class);
+
+        assertTrue(shaped.getMap().containsKey(Keywords.Str));
+        assertFalse(shaped.getMap().containsKey(Keywords.I));
+        assertEquals(1, shaped.getMap().size());
+        assertNotEquals(newInstance(Shaped.class), shaped);
+        assertEquals(deserialize("{:str nil}", Unshaped.class).getMap(), shaped.getMap());
+    }
+
+    @Test
+    public void equivalentToOrdinaryMaps() {
+        String edn = "{:str \"str\", :i 1, :inner {:str \"inner\", :i 2}}";
+        Shaped shaped = deserialize(edn, Shaped.class);
+        Unshaped unshaped = deserialize(edn, Unshaped.class);
+
+        assertEquals(unshaped.getMap(), shaped.getMap());
+        assertEquals(shaped.getMap(), unshaped.getMap());
+        assertEquals(unshaped.getMap().hashCode(), shaped.getMap().hashCode());
+        assertEquals(((IPersistentMap) unshaped.getMap()).seq().count(), ((IPersistentMap) shaped.getMap()).seq().count());
+        assertEquals("inner", shaped.inner().str());
+        Map<?, ?> unshapedMap = unshaped.getMap();
+        Map<?, ?> shapedMap = shaped.getMap();
+        assertEquals(new HashMap<>(unshapedMap), new HashMap<>(shapedMap));
+    }
+
+    @Test
+    public void instancesShareTheirShape() {
+        Shaped updated = deserialize("{:str \"str\"}", Shaped.class).i(1);
+        Shaped rebuilt = DynamicObject.wrap(updated.getMap(), Shaped.class).str("other");
+
+        assertSame(updated.getMap(), DynamicObject.wrap(updated.getMap(), Shaped.class).getMap());
+        assertSame(rebuilt.getMap(), DynamicObject.wrap(rebuilt.getMap(), Shaped.class).getMap());
+    }
+
+    @Test
+    public void unknownKeysFallBack() {
+        Shaped shaped = newInstance(Shaped.class).str("str").unknown("value");
+
+        assertEquals("str", shaped.str());
+        assertEquals("value", shaped.getMap().get(Keywords.Unknown));
+        assertEquals(deserialize("{:str \"str\", :unknown \"value\"}", Shaped.class), shaped);
+        assertEquals(newInstance(Shaped.class).str("str").getMap(), ((IPersistentMap) shaped.getMap()).without(Keywords.Unknown));
+    }
+
+    @Test
+    public void metadataIsPreserved() {
+        Shaped shaped = newInstance(Shaped.class).source("source").str("str");
+
+        assertEquals("source", shaped.source());
+        assertEquals("source", shaped.i(1).source());
+        assertEquals("source", shaped.unknown("value").source());
+    }
+
+    @Test
+    public void roundTrip() {
+        Shaped shaped = DynamicObject.build(Shaped.class, s -> s.str("str").i(1).inner(newInstance(Shaped.class).i(2)));
+
+        assertEquals(shaped, deserialize(serialize(shaped), Shaped.class));
+        assertEquals(shaped, fromFressianByteArray(toFressianByteArray(shaped)));
+    }
+
+    @FixedShape
+    public interface Shaped extends DynamicObject<Shaped> {
+        String str();
+        int i();
+        Shaped inner();
+        @Meta String source();
+
+        Shaped str(String str);
+        Shaped i(int i);
+        Shaped inner(Shaped inner);
+        @Meta Shaped source(String source);
+        @Key(":unknown") Shaped unknown(String unknown);
+    }
+
+    public interface Unshaped extends DynamicObject<Unshaped> {
+        String str();
+    }
+
+    private static class Keywords {
+        static final Object Str = Keyword.intern("str");
+        static final Object I = Keyword.intern("i");
+        static final Object Unknown = Keyword.intern("unknown");
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.deserializeFressianStream;
+import static com.github.rschmitt.dynamicobject.DynamicObject.fromFressian;
+import static com.github.rschmitt.dynamicobject.DynamicObject.fromFressianByteArray;
+import static com.github.rschmitt.dynamicobject.DynamicObject.toFressian;
+import static com.github.rschmitt.dynamicobject.DynamicObject.toFressianByteArray;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fressian.FressianWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FressianBufferTest {
+    private static final List<Object> values = Arrays.asList(
+            DynamicObject.newInstance(Message.class).id(1).kind("kind"),
+            Arrays.asList(
+                    DynamicObject.newInstance(Message.class).id(2).kind("kind"),
+                    DynamicObject.newInstance(Message.class).id(3).kind("kind")),
+            "caf\u00e9",
+            42L,
+            DynamicObject.deserialize("{:a [1 2 #{:b}], :c \"d\"}", Object.class)
+    );
+
+    @BeforeEach
+    public void setup() {
+        DynamicObject.registerTag(Message.class, "Message");
+    }
+
+    @AfterEach
+    public void teardown() {
+        DynamicObject.deregisterTag(Message.class);
+    }
+
+    @Test
+    public void pooledEncodingMatchesFreshWriter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            for (Object value : values) {
+                byte[] bytes = toFressianByteArray(value);
+
+                assertArrayEquals(freshEncoding(value), bytes);
+                assertEquals(value, fromFressianByteArray(bytes));
+            }
+        }
+    }
+
+    @Test
+    public void byteBuffers() {
+        for (Object value : values) {
+            byte[] expected = toFressianByteArray(value);
+            for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(expected.length + 10), ByteBuffer.allocateDirect(expected.length + 10))) {
+                buffer.put((byte) 1);
+
+                assertEquals(expected.length, toFressian(value, buffer));
+
+                assertEquals(expected.length + 1, buffer.position());
+                byte[] actual = new byte[expected.length];
+                buffer.flip().position(1);
+                buffer.get(actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void byteBufferOverflow() {
+        Object value = values.get(1);
+        int length = toFressianByteArray(value).length;
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(length - 1), ByteBuffer.allocateDirect(length - 1))) {
+            assertThrows(BufferOverflowException.class, () -> toFressian(value, buffer));
+            assertEquals(0, buffer.position());
+        }
+
+        assertArrayEquals(toFressianByteArray(value), toFressianByteArray(value));
+    }
+
+    @Test
+    public void decodeArrayRegions() {
+        for (Object value : values) {
+            byte[] bytes = toFressianByteArray(value);
+            byte[] padded = new byte[bytes.length + 7];
+            Arrays.fill(padded, (byte) 0xFF);
+            System.arraycopy(bytes, 0, padded, 3, bytes.length);
+
+            assertEquals(value, fromFressian(padded, 3, bytes.length));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> fromFressian(new byte[4], 2, 3));
+    }
+
+    @Test
+    public void decodeByteBuffers() {
+        for (Object value : values) {
+            byte[] bytes = toFressianByteArray(value);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+            direct.put(new byte[3]).put(bytes).position(3);
+            ByteBuffer heap = ByteBuffer.allocate(bytes.length + 2);
+            heap.put(new byte[2]).put(bytes).position(2);
+            ByteBuffer slice = heap.slice();
+
+            assertEquals(value, fromFressian(direct));
+            assertEquals(3, direct.position());
+            assertEquals(value, fromFressian(slice));
+            assertEquals(0, slice.position());
+        }
+    }
+
+    @Test
+    public void channelStream() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 20000; i++)
+            messages.add(DynamicObject.newInstance(Message.class).id(i).kind("kind" + i % 10));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (FressianWriter writer = DynamicObject.createFressianWriter(baos)) {
+            for (Message message : messages)
+                writer.writeObject(message);
+            writer.writeFooter();
+        }
+
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(messages, deserializeFressianStream(channel, Message.class).collect(toList()));
+    }
+
+    private static byte[] freshEncoding(Object value) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (FressianWriter writer = DynamicObject.createFressianWriter(baos)) {
+            writer.writeObject(value);
+        }
+        return baos.toByteArray();
+    }
+
+    public interface Message extends DynamicObject<Message> {
+        long id();
+        @Cached String kind();
+
+        Message id(long id);
+        Message kind(String kind);
+    }
+}
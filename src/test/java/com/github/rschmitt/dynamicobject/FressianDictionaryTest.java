@@ -0,0 +1,169 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.fromFressianByteArray;
+import static com.github.rschmitt.dynamicobject.DynamicObject.newInstance;
+import static com.github.rschmitt.dynamicobject.DynamicObject.toFressianByteArray;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fressian.FressianWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FressianDictionaryTest {
+    private static final List<Event> sample = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < 10; i++)
+            sample.add(newInstance(Event.class).id(i).kind(i % 2 == 0 ? "click" : "view"));
+    }
+
+    @BeforeEach
+    public void setup() {
+        DynamicObject.registerTag(Event.class, "Event");
+        DynamicObject.registerTag(Point.class, "Point");
+    }
+
+    @AfterEach
+    public void teardown() {
+        DynamicObject.deregisterTag(Event.class);
+        DynamicObject.deregisterTag(Point.class);
+    }
+
+    @Test
+    public void roundTrip() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).addKeys(Event.class).addSample(sample).build();
+        Event event = newInstance(Event.class).id(11).kind("click").point(newInstance(Point.class).x(1).y(2));
+
+        byte[] bytes = toFressianByteArray(event, dictionary);
+
+        assertEquals(event, fromFressianByteArray(bytes, dictionary));
+        assertTrue(bytes.length < toFressianByteArray(event).length);
+        assertEquals(event, fromFressianByteArray(toFressianByteArray(event)));
+    }
+
+    @Test
+    public void entries() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).addKeys(Event.class).addSample(sample).build();
+
+        assertTrue(dictionary.entries().contains("click"));
+        assertTrue(dictionary.entries().contains("view"));
+        assertFalse(dictionary.entries().contains(3L));
+        assertEquals(2, FressianDictionary.builder(1).addSample(sample).maxEntries(2).build().entries().size());
+    }
+
+    @Test
+    public void addedEntriesAreKeptWhenTruncating() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).add("rare").addSample(sample).maxEntries(2).build();
+
+        assertEquals("rare", dictionary.entries().get(0));
+        assertEquals(2, dictionary.entries().size());
+        assertThrows(IllegalStateException.class, () -> FressianDictionary.builder(1).addKeys(Event.class).maxEntries(2).build());
+    }
+
+    @Test
+    public void positionalLayout() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).addKeys(Point.class).build();
+        Point point = newInstance(Point.class).x(3).y(4);
+
+        byte[] bytes = toFressianByteArray(point, dictionary);
+
+        assertEquals(point, fromFressianByteArray(bytes, dictionary));
+        assertTrue(bytes.length < toFressianByteArray(point).length);
+    }
+
+    @Test
+    public void taggedEntries() {
+        Point origin = newInstance(Point.class).x(0).y(0);
+        FressianDictionary dictionary = FressianDictionary.of(1, Arrays.asList(origin, "click"));
+        List<Object> values = Arrays.asList(newInstance(Event.class).id(1).kind("click"), newInstance(Point.class).x(5).y(6),
+                newInstance(Event.class).id(2).kind("view").point(origin), origin, "click");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(values, fromFressianByteArray(toFressianByteArray(values, dictionary), dictionary));
+            assertEquals(values, fromFressianByteArray(toFressianByteArray(values)));
+        }
+    }
+
+    @Test
+    public void consecutiveMessages() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).addKeys(Event.class).build();
+        FressianDictionary otherVersion = FressianDictionary.of(2, dictionary.entries());
+        List<Object> messages = Arrays.asList(
+                newInstance(Event.class).id(1).kind("a").point(newInstance(Point.class).x(1).y(2)),
+                Arrays.asList(newInstance(Point.class).x(3).y(4), newInstance(Event.class).id(2).kind("b")),
+                newInstance(Event.class).id(3).kind("c"),
+                Arrays.asList(newInstance(Event.class).id(4).kind("b"), newInstance(Event.class).id(5).kind("b")));
+        List<byte[]> encoded = new ArrayList<>();
+        for (Object message : messages)
+            encoded.add(toFressianByteArray(message, dictionary));
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < messages.size(); i++)
+                assertEquals(messages.get(i), fromFressianByteArray(encoded.get(i), dictionary));
+            assertThrows(IllegalArgumentException.class, () -> fromFressianByteArray(toFressianByteArray(messages.get(0), otherVersion), dictionary));
+            assertEquals(messages.get(1), fromFressianByteArray(toFressianByteArray(messages.get(1))));
+        }
+    }
+
+    @Test
+    public void versionMismatch() {
+        FressianDictionary dictionary = FressianDictionary.builder(1).addKeys(Event.class).build();
+        FressianDictionary other = FressianDictionary.of(2, dictionary.entries());
+        byte[] bytes = toFressianByteArray(sample.get(0), dictionary);
+
+        assertThrows(IllegalArgumentException.class, () -> fromFressianByteArray(bytes, other));
+        assertEquals(sample.get(0), fromFressianByteArray(bytes, dictionary));
+    }
+
+    @Test
+    public void serialization() {
+        FressianDictionary dictionary = FressianDictionary.builder(7).addKeys(Event.class).addSample(sample).build();
+
+        assertEquals(dictionary, FressianDictionary.fromByteArray(dictionary.toByteArray()));
+    }
+
+    @Test
+    public void fressianSample() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (FressianWriter writer = DynamicObject.createFressianWriter(baos)) {
+            for (Event event : sample)
+                writer.writeObject(event);
+            writer.writeFooter();
+        }
+
+        FressianDictionary fromStream = FressianDictionary.builder(1)
+                .addSample(new ByteArrayInputStream(baos.toByteArray()))
+                .build();
+
+        assertEquals(FressianDictionary.builder(1).addSample(sample).build(), fromStream);
+    }
+
+    public interface Event extends DynamicObject<Event> {
+        long id();
+        @Cached String kind();
+        Point point();
+
+        Event id(long id);
+        Event kind(String kind);
+        Event point(Point point);
+    }
+
+    @PositionalEncoding
+    public interface Point extends DynamicObject<Point> {
+        long x();
+        long y();
+
+        Point x(long x);
+        Point y(long y);
+    }
+}
@@ -1,8 +1,10 @@
 package com.github.rschmitt.dynamicobject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
@@ -11,6 +13,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import clojure.lang.Keyword;
+
 public class FressianTest {
     public static final BinarySerialized SAMPLE_VALUE
             = DynamicObject.newInstance(BinarySerialized.class).withHello("world");
@@ -88,9 +92,90 @@ public class FressianTest {
         assertEquals(-1, secondIndex);
     }
 
+    @Test
+    public void writeHandlers_followRegistrationChanges() throws Exception {
+        Untagged value = DynamicObject.newInstance(Untagged.class).withHello("world");
+        assertFalse(DynamicObject.fromFressianByteArray(DynamicObject.toFressianByteArray(value)) instanceof Untagged);
+
+        DynamicObject.registerTag(Untagged.class, "Untagged");
+        try {
+            assertEquals(value, DynamicObject.fromFressianByteArray(DynamicObject.toFressianByteArray(value)));
+        } finally {
+            DynamicObject.deregisterTag(Untagged.class);
+        }
+
+        assertFalse(DynamicObject.fromFressianByteArray(DynamicObject.toFressianByteArray(value)) instanceof Untagged);
+    }
+
+    @Test
+    public void positionalEncoding_canBeRoundTripped() throws Exception {
+        DynamicObject.registerTag(Positional.class, "Positional");
+        try {
+            Positional full = DynamicObject.newInstance(Positional.class).name("name").count(3).cached("cached");
+            Positional sparse = DynamicObject.newInstance(Positional.class).count(4);
+            Positional withNull = DynamicObject.deserialize("{:name nil, :count 5}", Positional.class);
+            Positional withExtras = DynamicObject.deserialize("{:name \"name\", :extra [1 2], \"other\" 6}", Positional.class);
+            Positional empty = DynamicObject.newInstance(Positional.class);
+            List<Positional> values = Arrays.asList(full, sparse, withNull, withExtras, empty, full);
+
+            List<Positional> deserialized = DynamicObject.fromFressianByteArray(DynamicObject.toFressianByteArray(values));
+
+            assertEquals(values, deserialized);
+            assertTrue(deserialized.get(2).getMap().containsKey(Keyword.intern("name")));
+            assertFalse(deserialized.get(1).getMap().containsKey(Keyword.intern("name")));
+        } finally {
+            DynamicObject.deregisterTag(Positional.class);
+        }
+    }
+
+    @Test
+    public void positionalEncoding_writesLayoutOncePerStream() throws Exception {
+        DynamicObject.registerTag(Positional.class, "Positional");
+        DynamicObject.registerTag(NotPositional.class, "NotPositional");
+        try {
+            List<Positional> positional = new ArrayList<>();
+            List<NotPositional> notPositional = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Positional value = DynamicObject.newInstance(Positional.class).name("name").count(i);
+                positional.add(value);
+                notPositional.add(DynamicObject.wrap(value.getMap(), NotPositional.class));
+            }
+
+            byte[] fressian = DynamicObject.toFressianByteArray(positional);
+            String s = new String(fressian, "ISO-8859-1");
+
+            assertEquals(s.indexOf("count"), s.lastIndexOf("count"));
+            assertTrue(fressian.length < DynamicObject.toFressianByteArray(notPositional).length);
+            assertEquals(positional, DynamicObject.fromFressianByteArray(fressian));
+        } finally {
+            DynamicObject.deregisterTag(Positional.class);
+            DynamicObject.deregisterTag(NotPositional.class);
+        }
+    }
+
     public interface BinarySerialized extends DynamicObject<BinarySerialized> {
         @Key(":hello") BinarySerialized withHello(String hello);
         @Key(":null") BinarySerialized withNull(Object nil);
         @Cached @Key(":cached") BinarySerialized withCached(String cached);
     }
+
+    public interface Untagged extends DynamicObject<Untagged> {
+        @Key(":hello") Untagged withHello(String hello);
+    }
+
+    @PositionalEncoding
+    public interface Positional extends DynamicObject<Positional> {
+        String name();
+        int count();
+        @Cached String cached();
+
+        Positional name(String name);
+        Positional count(int count);
+        Positional cached(String cached);
+    }
+
+    public interface NotPositional extends DynamicObject<NotPositional> {
+        String name();
+        int count();
+    }
 }
@@ -0,0 +1,112 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.deserialize;
+import static com.github.rschmitt.dynamicobject.DynamicObject.newInstance;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class LazyTest {
+    @Test
+    public void lazyListsConvertElementsOnAccess() {
+        LazySchema schema = deserialize("{:ints [1 2 \"three\"]}", LazySchema.class);
+        List<Integer> ints = schema.ints();
+
+        assertEquals(3, ints.size());
+        assertEquals(Integer.valueOf(1), ints.get(0));
+        assertEquals(Integer.valueOf(2), ints.get(1));
+        assertThrows(ClassCastException.class, () -> ints.get(2));
+        assertThrows(ClassCastException.class, () -> deserialize("{:ints [1 2 \"three\"]}", EagerSchema.class).ints());
+    }
+
+    @Test
+    public void lazyListsAreEquivalentToEagerLists() {
+        String edn = "{:ints [1 2 3], :inners [{:i 1} {:i 2}], :nested {\"a\" [1 2], \"b\" [3]}, :set #{{:i 1} {:i 2}}}";
+        LazySchema lazy = deserialize(edn, LazySchema.class);
+        EagerSchema eager = deserialize(edn, EagerSchema.class);
+
+        assertEquals(eager.ints(), lazy.ints());
+        assertEquals(eager.inners(), lazy.inners());
+        assertEquals(eager.nested(), lazy.nested());
+        assertEquals(eager.set(), lazy.set());
+        assertEquals(lazy.ints(), eager.ints());
+        assertEquals(lazy.nested(), eager.nested());
+        assertEquals(lazy.set(), eager.set());
+        assertEquals(eager.ints().hashCode(), lazy.ints().hashCode());
+    }
+
+    @Test
+    public void convertedElementsAreMemoized() {
+        LazySchema schema = deserialize("{:inners [{:i 1} {:i 2}]}", LazySchema.class);
+        List<Inner> inners = schema.inners();
+
+        assertSame(inners.get(1), inners.get(1));
+        assertSame(inners.get(0), inners.iterator().next());
+        assertEquals(2, inners.get(1).i());
+    }
+
+    @Test
+    public void lookupsDoNotRequireConversion() {
+        Inner one = newInstance(Inner.class).i(1);
+        Inner two = newInstance(Inner.class).i(2);
+        Map<String, List<Short>> nested = new HashMap<>();
+        nested.put("a", asList((short) 1, (short) 2));
+        LazySchema schema = newInstance(LazySchema.class)
+                .set(new HashSet<>(asList(one, two)))
+                .nested(nested);
+
+        assertTrue(schema.set().contains(one));
+        assertFalse(schema.set().contains(newInstance(Inner.class).i(3)));
+        assertTrue(schema.nested().containsKey("a"));
+        assertEquals(asList((short) 1, (short) 2), schema.nested().get("a"));
+        assertEquals(Short.valueOf((short) 2), schema.nested().get("a").get(1));
+    }
+
+    @Test
+    public void lazyViewsAreImmutable() {
+        LazySchema schema = deserialize("{:ints [1 2 3]}", LazySchema.class);
+
+        assertThrows(UnsupportedOperationException.class, () -> schema.ints().add(4));
+        assertThrows(UnsupportedOperationException.class, () -> schema.ints().remove(0));
+    }
+
+    @Test
+    public void lazyViewsValidate() {
+        deserialize("{:ints [1 2 3], :inners [{:i 1}]}", LazySchema.class).validate();
+        assertThrows(IllegalStateException.class, () -> deserialize("{:ints [1 \"2\"]}", LazySchema.class).validate());
+    }
+
+    public interface LazySchema extends DynamicObject<LazySchema> {
+        @Lazy List<Integer> ints();
+        @Lazy List<Inner> inners();
+        @Lazy Map<String, List<Short>> nested();
+        @Lazy Set<Inner> set();
+
+        LazySchema nested(Map<String, List<Short>> nested);
+        LazySchema set(Set<Inner> set);
+    }
+
+    public interface EagerSchema extends DynamicObject<EagerSchema> {
+        List<Integer> ints();
+        List<Inner> inners();
+        Map<String, List<Short>> nested();
+        Set<Inner> set();
+    }
+
+    public interface Inner extends DynamicObject<Inner> {
+        int i();
+
+        Inner i(int i);
+    }
+}
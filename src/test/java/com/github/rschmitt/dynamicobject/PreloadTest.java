@@ -0,0 +1,104 @@
+package com.github.rschmitt.dynamicobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class PreloadTest {
+    private static final AtomicInteger customValidations = new AtomicInteger();
+
+    @Test
+    public void preloadLinksGettersAndBuilders() throws Exception {
+        Path usageFile = Files.createTempFile("usage", ".txt");
+        try (Closeable ignored = DynamicObject.recordUsage(usageFile)) {
+            DynamicObject.preload(Preloaded.class);
+        }
+        List<String> lines = Files.readAllLines(usageFile, StandardCharsets.UTF_8);
+
+        assertTrue(lines.contains(Preloaded.class.getName() + " str()Ljava/lang/String;"));
+        assertTrue(lines.contains(Preloaded.class.getName() + " i()I"));
+        assertTrue(lines.contains(Preloaded.class.getName() + " i(I)L" + Preloaded.class.getName().replace('.', '/') + ";"));
+        assertTrue(lines.contains(Preloaded.class.getName() + " validate()Lcom/github/rschmitt/dynamicobject/DynamicObject;"));
+        assertFalse(lines.stream().anyMatch(line -> line.contains("describe")));
+    }
+
+    @Test
+    public void preloadFromRecording() throws Exception {
+        Path usageFile = Files.createTempFile("usage", ".txt");
+        try (Closeable ignored = DynamicObject.recordUsage(usageFile)) {
+            DynamicObject.newInstance(Recorded.class).str("str").str();
+        }
+        List<String> recording = Files.readAllLines(usageFile, StandardCharsets.UTF_8);
+        Files.write(usageFile, (String.join("\n", recording) + "\nno.such.Type str()Ljava/lang/String;\n").getBytes(StandardCharsets.UTF_8));
+
+        DynamicObject.preload(usageFile);
+
+        assertTrue(recording.contains(Recorded.class.getName() + " str()Ljava/lang/String;"));
+        assertFalse(recording.stream().anyMatch(line -> line.contains(" i()")));
+    }
+
+    @Test
+    public void preloadInParallel() {
+        DynamicObject.preload(ForkJoinPool.commonPool(), Parallel.class, CustomValidated.class);
+
+        assertEquals("str", DynamicObject.newInstance(Parallel.class).str("str").str());
+    }
+
+    @Test
+    public void preloadDoesNotRunUserCode() {
+        DynamicObject.preload(CustomValidated.class);
+
+        assertEquals(0, customValidations.get());
+    }
+
+    @Test
+    public void onlyDynamicObjectTypesCanBePreloaded() {
+        assertThrows(IllegalArgumentException.class, () -> DynamicObject.preload(String.class));
+    }
+
+    public interface Preloaded extends DynamicObject<Preloaded> {
+        String str();
+        @Required int i();
+
+        Preloaded str(String str);
+        Preloaded i(int i);
+
+        default String describe() {
+            return str() + i();
+        }
+    }
+
+    public interface Recorded extends DynamicObject<Recorded> {
+        String str();
+        int i();
+
+        Recorded str(String str);
+    }
+
+    public interface Parallel extends DynamicObject<Parallel> {
+        String str();
+
+        Parallel str(String str);
+    }
+
+    public interface CustomValidated extends DynamicObject<CustomValidated> {
+        String str();
+
+        @Override
+        default CustomValidated validate() {
+            customValidations.incrementAndGet();
+            return this;
+        }
+    }
+}
@@ -5,8 +5,12 @@ import static com.github.rschmitt.dynamicobject.DynamicObject.serialize;
 import static com.github.rschmitt.dynamicobject.TestUtils.assertEquivalent;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 
 public class PrimitiveTest {
@@ -107,6 +111,55 @@ public class PrimitiveTest {
         assertEquals(Edn, boxed.toString());
     }
 
+    @Test
+    public void unboxedBuildersStoreClojureRepresentation() {
+        Unboxed unboxed = DynamicObject.newInstance(Unboxed.class)
+                .i(4)
+                .shrt((short) 4)
+                .b((byte) 127)
+                .f((float) 3.14);
+
+        assertEquals(Long.valueOf(4), unboxed.get(deserialize(":i", Object.class)));
+        assertEquals(Long.valueOf(4), unboxed.get(deserialize(":shrt", Object.class)));
+        assertEquals(Long.valueOf(127), unboxed.get(deserialize(":b", Object.class)));
+        assertEquals(Double.valueOf(3.14), unboxed.get(deserialize(":f", Object.class)));
+    }
+
+    @Test
+    public void missingUnboxedFieldsThrow() {
+        Unboxed unboxed = deserialize("{}", Unboxed.class);
+
+        assertThrows(NullPointerException.class, unboxed::i);
+        assertThrows(NullPointerException.class, unboxed::lng);
+        assertThrows(NullPointerException.class, unboxed::d);
+        assertThrows(NullPointerException.class, unboxed::bool);
+    }
+
+    @Test
+    public void integralValuesInFloatingPointFields() {
+        Unboxed unboxed = deserialize("{:d 1, :f 2}", Unboxed.class);
+
+        assertEquals(1.0, unboxed.d(), 0.0);
+        assertEquals(2.0f, unboxed.f(), 0.0f);
+    }
+
+    @Test
+    public void narrowerBoxedTypesInMap() {
+        Map<Object, Object> map = new HashMap<>();
+        map.put(deserialize(":lng", Object.class), 5);
+        map.put(deserialize(":i", Object.class), 6);
+        map.put(deserialize(":shrt", Object.class), 7);
+        map.put(deserialize(":f", Object.class), 1.5f);
+        map.put(deserialize(":d", Object.class), 2.5f);
+        Unboxed unboxed = DynamicObject.wrap(map, Unboxed.class);
+
+        assertEquals(5L, unboxed.lng());
+        assertEquals(6, unboxed.i());
+        assertEquals(7, unboxed.shrt());
+        assertEquals(1.5f, unboxed.f(), 0.0f);
+        assertEquals(2.5, unboxed.d(), 0.0);
+    }
+
     @Test
     public void testEquality() {
         assertEquals(Boxed, Unboxed);
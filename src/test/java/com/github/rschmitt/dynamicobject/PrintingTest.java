@@ -4,7 +4,18 @@ import static com.github.rschmitt.dynamicobject.DynamicObject.newInstance;
 import static com.github.rschmitt.dynamicobject.DynamicObject.registerTag;
 import static com.github.rschmitt.dynamicobject.DynamicObject.serialize;
 import static com.github.rschmitt.dynamicobject.TestUtils.assertEquivalent;
+import static com.github.rschmitt.dynamicobject.TestUtils.genericRead;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import clojure.java.api.Clojure;
+import clojure.lang.RT;
+import clojure.lang.Var;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -48,6 +59,31 @@ public class PrintingTest {
         assertEquivalent("{:untagged {}, :tagged #Tagged{}}", serialize(nestedUntagged));
     }
 
+    @Test
+    public void serializationMatchesClojurePrinter() {
+        Object[] values = {
+                null, true, 1L, 2.5, -0.0, Double.NaN, 1.5f, new BigDecimal("1.10"), new BigInteger("12345678901234567890"),
+                'c', '\n', ' ', "tab\t \"quoted\" back\\slash\nnewline \u00e9", Arrays.asList(1, "two", null),
+                new HashSet<>(Arrays.asList(1L, 2L)), Collections.singletonMap("k", 'v'), new Object[0].getClass(),
+                nestedTagged, emptyTagged.tagged(nestedTagged).untagged(emptyUntagged.tagged(emptyTagged)),
+                genericRead("{:a [1 2N 3M 1/2 \\x \"s\"] b/c #{(1 2) ()} \"\" nil}"),
+        };
+
+        for (Object value : values) {
+            assertEquals(clojurePrint(value), serialize(value));
+        }
+    }
+
+    // Any non-default printer setting sends everything through clojure.core/pr-on
+    private static String clojurePrint(Object value) {
+        Var.pushThreadBindings(RT.map(RT.var("clojure.core", "*print-length*"), 1_000_000));
+        try {
+            return (String) Clojure.var("clojure.core/pr-str").invoke(value);
+        } finally {
+            Var.popThreadBindings();
+        }
+    }
+
     public interface Tagged extends DynamicObject<Tagged> {
         @Key(":tagged") Tagged tagged(Tagged tagged);
         @Key(":untagged") Tagged untagged(Untagged untagged);
@@ -0,0 +1,119 @@
+package com.github.rschmitt.dynamicobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ProxyCacheTest {
+    @Test
+    public void concurrentFirstUseGeneratesOneProxyClass() throws Exception {
+        int threads = 8;
+        CountDownLatch latch = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Class<?>>> futures = IntStream.range(0, threads)
+                    .mapToObj(i -> executor.<Class<?>>submit(() -> {
+                        latch.countDown();
+                        latch.await();
+                        return DynamicObject.newInstance(Unused.class).getClass();
+                    }))
+                    .collect(Collectors.toList());
+            Class<?> proxyClass = futures.get(0).get();
+            for (Future<Class<?>> future : futures)
+                assertEquals(proxyClass, future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void proxiesAreHiddenClasses() {
+        assumeTrue(javaVersion() >= 15);
+
+        Class<?> proxyClass = DynamicObject.newInstance(Unused.class).getClass();
+        assertTrue(proxyClass.getName().startsWith(Unused.class.getName() + "Impl/"));
+        assertThrows(ClassNotFoundException.class, () -> Class.forName(proxyClass.getName()));
+    }
+
+    @Test
+    public void packagePrivateTypes() {
+        assumeTrue(javaVersion() >= 15);
+
+        PackagePrivate instance = DynamicObject.newInstance(PackagePrivate.class).str("str");
+        assertEquals("str", instance.str());
+    }
+
+    @Test
+    public void proxyClassesAreCachedOnDisk() throws Exception {
+        Path cache = Files.createTempDirectory("proxies");
+        DynamicObject.useProxyCache(cache);
+        try {
+            assertEquals("str", DynamicObject.newInstance(Cached.class).str("str").str());
+        } finally {
+            DynamicObject.useProxyCache(null);
+        }
+
+        assertTrue(Files.isRegularFile(cacheFile(cache, Cached.class)));
+    }
+
+    @Test
+    public void staleCacheEntriesAreReplaced() throws Exception {
+        Path cache = Files.createTempDirectory("proxies");
+        Path file = cacheFile(cache, Stale.class);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{(byte) 0xCA, (byte) 0xFE});
+
+        DynamicObject.useProxyCache(cache);
+        try {
+            assertEquals("str", DynamicObject.newInstance(Stale.class).str("str").str());
+        } finally {
+            DynamicObject.useProxyCache(null);
+        }
+
+        assertTrue(Files.size(file) > 2);
+    }
+
+    private static Path cacheFile(Path cache, Class<?> type) {
+        return cache.resolve(type.getName().replace('.', '/') + "Impl.class");
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+
+    interface PackagePrivate extends DynamicObject<PackagePrivate> {
+        String str();
+
+        PackagePrivate str(String str);
+    }
+
+    public interface Cached extends DynamicObject<Cached> {
+        String str();
+
+        Cached str(String str);
+    }
+
+    public interface Stale extends DynamicObject<Stale> {
+        String str();
+
+        Stale str(String str);
+    }
+
+    public interface Unused extends DynamicObject<Unused> {
+        String str();
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.rschmitt.dynamicobject;
 
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.Test;
 
@@ -20,7 +21,18 @@ public class StaticFieldTest {
         assertNull(holder.getMap().get("asdf"));
     }
 
+    @Test
+    public void instancesCreatedDuringStaticInitializationShareTheProxyClass() {
+        Singleton singleton = DynamicObject.newInstance(Singleton.class);
+
+        assertSame(Singleton.instance.getClass(), singleton.getClass());
+    }
+
     public interface Holder extends DynamicObject<Holder> {
         Holder holder = DynamicObject.newInstance(Holder.class);
     }
+
+    public interface Singleton extends DynamicObject<Singleton> {
+        Singleton instance = DynamicObject.newInstance(Singleton.class);
+    }
 }
@@ -7,6 +7,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PushbackReader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Stream;
@@ -82,6 +85,102 @@ public class StreamingTest {
         assertTrue(list.isEmpty());
     }
 
+    @Test
+    public void serializeAllRoundTrip() {
+        List<StreamingType> expected = asList(
+                DynamicObject.deserialize("{:x 1}", StreamingType.class),
+                DynamicObject.deserialize("{:x 2, :str \"two\nlines\"}", StreamingType.class),
+                DynamicObject.deserialize("{:x 3}", StreamingType.class));
+        FlushCountingWriter writer = new FlushCountingWriter();
+
+        DynamicObject.serializeAll(expected.stream(), writer);
+
+        assertEquals(1, writer.flushes);
+        assertEquals(3, writer.toString().split("\n").length);
+        PushbackReader reader = new PushbackReader(new StringReader(writer.toString()));
+        assertEquals(expected, deserializeStream(reader, StreamingType.class).collect(toList()));
+    }
+
+    @Test
+    public void flushPolicies() {
+        FlushCountingWriter byRecords = new FlushCountingWriter();
+        FlushCountingWriter byChars = new FlushCountingWriter();
+        FlushCountingWriter onClose = new FlushCountingWriter();
+
+        try (EdnStreamWriter records = DynamicObject.createEdnStreamWriter(byRecords).flushEveryRecords(2);
+             EdnStreamWriter chars = DynamicObject.createEdnStreamWriter(byChars).flushEveryChars(10).delimiter(",");
+             EdnStreamWriter close = DynamicObject.createEdnStreamWriter(onClose)) {
+            for (int i = 0; i < 5; i++) {
+                records.write(i);
+                chars.write(":abcd");
+                close.write(i);
+            }
+            assertEquals(2, byRecords.flushes);
+            assertEquals(2, byChars.flushes);
+            assertEquals(0, onClose.flushes);
+        }
+
+        assertEquals(3, byRecords.flushes);
+        assertEquals(3, byChars.flushes);
+        assertEquals(1, onClose.flushes);
+        assertEquals("\":abcd\",\":abcd\",\":abcd\",\":abcd\",\":abcd\",", byChars.toString());
+        assertEquals("0\n1\n2\n3\n4\n", onClose.toString());
+    }
+
+    @Test
+    public void parallelByteBufferStream() {
+        String[] records = {
+                "{:x 1, :str \"}{ ] \\\" ;\n\"}",
+                "{:x 2, :chars [\\{ \\} \\\" \\; \\newline]} ; {:x -1}\n",
+                "#_ {:x -1} {:x 3, :set #{1 2 3}}",
+                "^{:meta [\"}\"]} {:x 4}",
+                "#Streaming {:x 5, :inst #inst \"1985-04-12T23:20:50.52Z\"}",
+                "#:ns{:y 6, :_/x 6}",
+                "{:x 7, :str \"caf\u00e9 \ud83d\ude00\", :nested {:a [{:b (1 2 {:c \"]\"})}]}}",
+                "{:x 8}\n\n",
+                "{:x 9},",
+        };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            sb.append(records[i % records.length]).append(i % 7 == 0 ? " " : "\n");
+        String edn = sb.toString();
+        ByteBuffer buffer = ByteBuffer.wrap(edn.getBytes(StandardCharsets.UTF_8));
+
+        DynamicObject.registerTag(StreamingType.class, "Streaming");
+        try {
+            List<StreamingType> expected = deserializeStream(new PushbackReader(new StringReader(edn)), StreamingType.class).collect(toList());
+
+            assertNotNull(deserializeStream(buffer, StreamingType.class).spliterator().trySplit());
+            assertEquals(expected, deserializeStream(buffer, StreamingType.class).parallel().collect(toList()));
+            assertEquals(expected, deserializeStream(buffer, StreamingType.class).collect(toList()));
+            assertEquals(0, buffer.position());
+        } finally {
+            DynamicObject.deregisterTag(StreamingType.class);
+        }
+    }
+
+    @Test
+    public void parallelStreamErrors() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            sb.append("{:x ").append(i).append("}\n");
+        sb.append("{:x [}\n");
+        for (int i = 0; i < 1000; i++)
+            sb.append("{:x ").append(i).append("}\n");
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(RuntimeException.class, () -> deserializeStream(buffer, StreamingType.class).parallel().count());
+    }
+
+    private static class FlushCountingWriter extends StringWriter {
+        int flushes = 0;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
     public interface StreamingType extends DynamicObject<StreamingType> {
         int x();
     }
@@ -0,0 +1,91 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.serialize;
+import static com.github.rschmitt.dynamicobject.DynamicObject.serializeToBytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class Utf8SerializationTest {
+    private static final List<Object> values = Arrays.asList(
+            DynamicObject.deserialize("{:name \"name\", :tags #{:a :b}, :n 42}", Record.class),
+            "ascii",
+            "caf\u00e9 \u4e2d\u6587 \ud83d\ude00",
+            "unpaired \ud83d and \ude00 surrogates \ud83d",
+            "\ud83d",
+            '\u00e9',
+            repeat("\u4e2d\ud83d\ude00abc", 5000),
+            Arrays.asList(repeat("x", 8191) + "\u00e9", "\ud83d\ude00")
+    );
+
+    @Test
+    public void bytesMatchStringEncoding() {
+        for (Object value : values)
+            assertArrayEquals(expected(value), serializeToBytes(value));
+    }
+
+    @Test
+    public void outputStream() {
+        for (Object value : values) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            serialize(value, baos);
+            assertArrayEquals(expected(value), baos.toByteArray());
+        }
+    }
+
+    @Test
+    public void byteBuffers() {
+        for (Object value : values) {
+            byte[] expected = expected(value);
+            for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(expected.length + 10), ByteBuffer.allocateDirect(expected.length + 10))) {
+                buffer.put((byte) 1);
+
+                serialize(value, buffer);
+
+                assertEquals(expected.length + 1, buffer.position());
+                byte[] actual = new byte[expected.length];
+                buffer.flip().position(1);
+                buffer.get(actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void byteBufferOverflow() {
+        Object value = values.get(0);
+        int length = expected(value).length;
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(length - 1), ByteBuffer.allocateDirect(length - 1))) {
+            assertThrows(BufferOverflowException.class, () -> serialize(value, buffer));
+            assertEquals(0, buffer.position());
+        }
+
+        ByteBuffer exact = ByteBuffer.allocate(length);
+        serialize(value, exact);
+        assertEquals(length, exact.position());
+    }
+
+    private static byte[] expected(Object value) {
+        return serialize(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++)
+            sb.append(s);
+        return sb.toString();
+    }
+
+    public interface Record extends DynamicObject<Record> {
+        String name();
+    }
+}
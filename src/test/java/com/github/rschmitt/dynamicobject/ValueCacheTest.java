@@ -0,0 +1,69 @@
+package com.github.rschmitt.dynamicobject;
+
+import static com.github.rschmitt.dynamicobject.DynamicObject.deserialize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ValueCacheTest {
+    private static final String Edn = "{:inner {:str \"str\"}, :ints [1 2 3], :inherited \"inherited\"}";
+
+    @Test
+    public void convertedValuesAreCached() {
+        Outer outer = deserialize(Edn, Outer.class);
+
+        assertSame(outer.inner(), outer.inner());
+        assertSame(outer.ints(), outer.ints());
+        assertEquals("str", outer.inner().str());
+    }
+
+    @Test
+    public void inheritedGettersAreCached() {
+        Outer outer = deserialize(Edn, Outer.class);
+
+        assertSame(outer.inherited(), outer.inherited());
+        assertEquals("inherited", outer.inherited());
+    }
+
+    @Test
+    public void nullsAreCached() {
+        Outer outer = deserialize("{}", Outer.class);
+
+        assertNull(outer.inner());
+        assertNull(outer.inner());
+        assertNull(outer.ints());
+    }
+
+    @Test
+    public void cacheIsNotSharedAcrossInstances() {
+        Outer outer = deserialize(Edn, Outer.class);
+        Inner inner = outer.inner();
+        Outer updated = outer.inner(inner.str("updated"));
+
+        assertEquals("str", outer.inner().str());
+        assertEquals("updated", updated.inner().str());
+        assertNull(updated.validate().inner().validate().ints());
+    }
+
+    public interface Base {
+        String inherited();
+    }
+
+    public interface Outer extends DynamicObject<Outer>, Base {
+        Inner inner();
+        List<Integer> ints();
+
+        Outer inner(Inner inner);
+    }
+
+    public interface Inner extends DynamicObject<Inner> {
+        String str();
+        List<Integer> ints();
+
+        Inner str(String str);
+    }
+}
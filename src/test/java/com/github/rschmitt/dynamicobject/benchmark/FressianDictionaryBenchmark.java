@@ -0,0 +1,52 @@
+package com.github.rschmitt.dynamicobject.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.github.rschmitt.dynamicobject.Cached;
+import com.github.rschmitt.dynamicobject.DynamicObject;
+import com.github.rschmitt.dynamicobject.FressianDictionary;
+
+/*
+ * Decodes the same small message with dictionaries of different sizes. Since a pooled reader is only primed once per
+ * dictionary, the time per message should not depend on the size of the dictionary.
+ */
+public class FressianDictionaryBenchmark {
+    private static final int Iterations = 1_000_000;
+
+    @Test
+    @Tag("benchmark")
+    public void run() {
+        DynamicObject.registerTag(Event.class, "event");
+        try {
+            Event event = DynamicObject.newInstance(Event.class).id(1).kind("click");
+            for (int size : new int[]{8, 64, 256, 1024}) {
+                FressianDictionary.Builder builder = FressianDictionary.builder(size).addKeys(Event.class).add("click").maxEntries(size);
+                for (int i = 0; builder.build().entries().size() < size; i++)
+                    builder.add(DynamicObject.deserialize(":padding-" + i, Object.class));
+                FressianDictionary dictionary = builder.build();
+                byte[] bytes = DynamicObject.toFressianByteArray(event, dictionary);
+
+                for (int i = 0; i < Iterations / 10; i++)
+                    DynamicObject.fromFressianByteArray(bytes, dictionary);
+                long startTime = System.nanoTime();
+                for (int i = 0; i < Iterations; i++)
+                    DynamicObject.fromFressianByteArray(bytes, dictionary);
+                long endTime = System.nanoTime();
+
+                System.out.println(String.format("dictionary of %,d entries: %d bytes, %,d ns per message",
+                        dictionary.entries().size(), bytes.length, (endTime - startTime) / Iterations));
+            }
+        } finally {
+            DynamicObject.deregisterTag(Event.class);
+        }
+    }
+
+    public interface Event extends DynamicObject<Event> {
+        long id();
+        @Cached String kind();
+
+        Event id(long id);
+        Event kind(String kind);
+    }
+}
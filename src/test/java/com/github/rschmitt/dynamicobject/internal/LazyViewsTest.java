@@ -0,0 +1,35 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+
+public class LazyViewsTest {
+    @Test
+    public void mapValuesAreConvertedOnce() {
+        Map<?, ?> backing = DynamicObject.deserialize("{\"a\" 1, \"b\" nil, nil 3}", Map.class);
+        AtomicInteger conversions = new AtomicInteger();
+        Function<Object, Object> converter = o -> {
+            conversions.incrementAndGet();
+            return o == null ? null : ((Long) o).intValue();
+        };
+        Map<?, ?> view = (Map<?, ?>) LazyViews.view(backing, Function.identity(), Function.identity(), converter);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, view.get("a"));
+            assertNull(view.get("b"));
+            assertEquals(3, view.get(null));
+        }
+        assertEquals(3, conversions.get());
+
+        view.entrySet().forEach(Map.Entry::getValue);
+        assertEquals(3, conversions.get());
+    }
+}
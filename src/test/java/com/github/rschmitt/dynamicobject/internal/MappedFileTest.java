@@ -0,0 +1,133 @@
+package com.github.rschmitt.dynamicobject.internal;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import org.fressian.FressianWriter;
+import org.junit.jupiter.api.Test;
+
+import com.github.rschmitt.dynamicobject.DynamicObject;
+
+public class MappedFileTest {
+    private static final String[] records = {
+            "{:x 1, :str \"}{ ] \\\" ;\n\"}",
+            "{:x 2, :chars [\\{ \\} \\\" \\; \\newline]} ; {:x -1}\n",
+            "#_ {:x -1} {:x 3, :set #{1 2 3}}",
+            "^{:meta [\"}\"]} {:x 4}",
+            "{:x 5, :str \"caf\u00e9 \ud83d\ude00\", :nested {:a [{:b (1 2 {:c \"]\"})}]}}",
+            "123456789",
+            "\\u00e9",
+            "{:x 8}\n\n",
+            "{:x 9},",
+    };
+
+    @Test
+    public void ednFile() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+            sb.append(records[i % records.length]).append(i % 7 == 0 ? " " : "\n");
+        String edn = sb.toString();
+        List<Object> expected = EdnSerialization.deserializeStream(new PushbackReader(new StringReader(edn)), Object.class, Registry.EMPTY).collect(toList());
+
+        Path file = Files.createTempFile("edn", ".edn");
+        try {
+            Files.write(file, edn.getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(expected, DynamicObject.deserializeFile(file, Object.class).parallel().collect(toList()));
+            for (long windowSize : new long[]{100, 101, 1000, 4096})
+                assertEquals(expected, StreamSupport.stream(EdnSpliterator.of(file, windowSize, Registry.EMPTY, o -> o), true).collect(toList()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void nonAsciiAcrossWindows() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            sb.append("{:i ").append(i).append(", :s \"\u00e9\u00e8\u4e2d\u6587\ud83d\ude00\", :k :\u00fcber\u00b5}\n");
+        String edn = sb.toString();
+        List<Object> expected = EdnSerialization.deserializeStream(new PushbackReader(new StringReader(edn)), Object.class, Registry.EMPTY).collect(toList());
+
+        Path file = Files.createTempFile("edn", ".edn");
+        try {
+            Files.write(file, edn.getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(expected, DynamicObject.deserializeFile(file, Object.class).collect(toList()));
+            for (long windowSize : new long[]{97, 98, 99, 100, 1001})
+                assertEquals(expected, StreamSupport.stream(EdnSpliterator.of(file, windowSize, Registry.EMPTY, o -> o), true).collect(toList()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void malformedUtf8() {
+        byte[] bytes = {'"', 'a', (byte) 0xC3, '"', ' ', '"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"', ' ',
+                '"', (byte) 0xE0, (byte) 0x80, (byte) 0xE2, (byte) 0x82, '"', ' ', '"', (byte) 0xF0, (byte) 0x9F, (byte) 0x98, '"', ' ',
+                '"', (byte) 0xF8, (byte) 0xC1, (byte) 0xBF, '"', ' ', '"', (byte) 0xE2, (byte) 0x82, '"'};
+        String decoded = new String(bytes, StandardCharsets.UTF_8);
+        List<Object> expected = EdnSerialization.deserializeStream(new PushbackReader(new StringReader(decoded)), Object.class, Registry.EMPTY).collect(toList());
+
+        assertEquals(expected, StreamSupport.stream(EdnSpliterator.of(ByteBuffer.wrap(bytes), Registry.EMPTY, o -> o), false).collect(toList()));
+    }
+
+    @Test
+    public void ednElementLargerThanWindow() throws IOException {
+        Path file = Files.createTempFile("edn", ".edn");
+        try {
+            Files.write(file, "{:x 1} [1 2 3 4 5 6 7 8 9 10] {:x 2}".getBytes(StandardCharsets.UTF_8));
+
+            assertThrows(RuntimeException.class, () -> EdnSpliterator.of(file, 16, Registry.EMPTY, o -> o));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void emptyFiles() throws IOException {
+        Path file = Files.createTempFile("empty", ".edn");
+        try {
+            assertEquals(0, DynamicObject.deserializeFile(file, Object.class).count());
+            assertEquals(0, DynamicObject.deserializeFressianFile(file, Object.class).count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void fressianFile() throws IOException {
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            expected.add(EdnSerialization.deserialize(records[i % records.length], Object.class, Registry.EMPTY));
+
+        Path file = Files.createTempFile("fressian", ".fressian");
+        try {
+            try (OutputStream os = Files.newOutputStream(file);
+                 FressianWriter writer = FressianSerialization.createFressianWriter(os, Registry.EMPTY)) {
+                for (Object o : expected)
+                    writer.writeObject(o);
+                writer.writeFooter();
+            }
+
+            assertEquals(expected, DynamicObject.deserializeFressianFile(file, Object.class).collect(toList()));
+            for (long windowSize : new long[]{1, 7, 1000})
+                assertEquals(expected, FressianSerialization.deserializeFressianFile(file, windowSize, Object.class, Registry.EMPTY).collect(toList()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}